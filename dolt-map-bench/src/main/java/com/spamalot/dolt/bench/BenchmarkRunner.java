@@ -0,0 +1,33 @@
+package com.spamalot.dolt.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Run the benchmarks with allocation profiling turned on. Takes the usual JMH
+ * command line arguments, e.g. a benchmark name pattern.
+ * 
+ * @author gej
+ *
+ */
+public final class BenchmarkRunner {
+
+  /** Instantiate nothing. */
+  private BenchmarkRunner() {
+  }
+
+  /**
+   * Run the benchmarks.
+   * 
+   * @param args JMH command line arguments
+   * @throws RunnerException            if a benchmark fails
+   * @throws CommandLineOptionException if the arguments are bad
+   */
+  public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+    new Runner(new OptionsBuilder().parent(new CommandLineOptions(args)).addProfiler(GCProfiler.class).build()).run();
+  }
+}
@@ -0,0 +1,63 @@
+package com.spamalot.dolt.bench;
+
+import com.spamalot.dolt.map.DoltMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark generating a whole DoltMap at several sizes, each with a number of
+ * territories that fits in it, so every case measures real generation.
+ * The seed is fixed so every run generates the same Maps.
+ * 
+ * @author gej
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class MapBenchmark {
+  /** Map width x height, and the number of territories to place on it. */
+  @Param({ "40x20:10", "200x100:100", "1000x500:1000" })
+  private String mapSpec;
+
+  private int width;
+
+  private int height;
+
+  private int territories;
+
+  /**
+   * Parse the Map spec.
+   */
+  @Setup
+  public void setUp() {
+    final int separator = this.mapSpec.indexOf('x');
+    final int colon = this.mapSpec.indexOf(':');
+    this.width = Integer.parseInt(this.mapSpec.substring(0, separator));
+    this.height = Integer.parseInt(this.mapSpec.substring(separator + 1, colon));
+    this.territories = Integer.parseInt(this.mapSpec.substring(colon + 1));
+  }
+
+  /**
+   * Generate a Map.
+   * 
+   * @return the Map
+   */
+  @Benchmark
+  public DoltMap generate() {
+    return new DoltMap(this.width, this.height, this.territories, 1L);
+  }
+}
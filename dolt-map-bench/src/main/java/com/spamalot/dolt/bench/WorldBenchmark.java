@@ -0,0 +1,83 @@
+package com.spamalot.dolt.bench;
+
+import com.spamalot.dolt.map.DoltMap;
+import com.spamalot.dolt.map.MapTile;
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.TileLayout;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark building and rendering a DoltWorld. Construction includes linking
+ * every tile to its neighbors.
+ * 
+ * @author gej
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class WorldBenchmark {
+  /** Side of the square World. */
+  @Param({ "100", "1000" })
+  private int size;
+
+  /** How the World arranges its tiles. */
+  @Param({ "ROW_MAJOR", "COLUMN_MAJOR", "Z_ORDER" })
+  private TileLayout layout;
+
+  /** A generated Map to render. */
+  private DoltMap map;
+
+  /**
+   * Generate the Map to render.
+   */
+  @Setup
+  public void setUp() {
+    this.map = new DoltMap.Builder().setWidth(this.size).setHeight(this.size).setTerritories(this.size / 2)
+        .setSeed(1L).setLayout(this.layout).build();
+  }
+
+  /**
+   * Build and link a World.
+   * 
+   * @return the World
+   */
+  @Benchmark
+  public DoltWorld<MapTile> construct() {
+    return new DoltWorld<>(this.size, this.size, MapTile::new, this.layout, false);
+  }
+
+  /**
+   * Build and link a World in bands of rows on the common pool.
+   * 
+   * @return the World
+   */
+  @Benchmark
+  public DoltWorld<MapTile> constructParallel() {
+    return new DoltWorld<>(this.size, this.size, MapTile::new, this.layout, true);
+  }
+
+  /**
+   * Render a World to a String.
+   * 
+   * @return the rendering
+   */
+  @Benchmark
+  public String render() {
+    return this.map.getWorld().toString();
+  }
+}
@@ -0,0 +1,78 @@
+package com.spamalot.dolt.map;
+
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.FloodFill;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark the Territory operations that dominate generation. Lives in the
+ * map package to reach the package private Territory.
+ * 
+ * @author gej
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Dlogback.configurationFile=logback-bench.xml")
+public class TerritoryBenchmark {
+  /** Side of the square, all water World to flood. */
+  private static final int WORLD_SIZE = 500;
+
+  /** Stop the water count after this many tiles. */
+  @Param({ "30", "10000" })
+  private int maxTiles;
+
+  /** An all water World. */
+  private DoltWorld<MapTile> water;
+
+  /** Flood fill engine for {@link #water}. */
+  private FloodFill<MapTile> floodFill;
+
+  /** A generated Map with territories. */
+  private DoltMap map;
+
+  /**
+   * Build the Worlds.
+   */
+  @Setup
+  public void setUp() {
+    this.water = new DoltWorld<>(WORLD_SIZE, WORLD_SIZE, MapTile.class);
+    this.floodFill = new FloodFill<>(this.water);
+    this.map = new DoltMap(200, 100, 100, 1L);
+  }
+
+  /**
+   * Count water tiles from the middle of an open sea.
+   * 
+   * @return the count
+   */
+  @Benchmark
+  public int countWaterTilesAvailableWithMax() {
+    return Territory.countWaterTilesAvailableWithMax(this.floodFill,
+        this.water.getMapTile(WORLD_SIZE / 2, WORLD_SIZE / 2), this.maxTiles);
+  }
+
+  /**
+   * Build the territory adjacency graph of a Map in one pass.
+   * 
+   * @return the graph
+   */
+  @Benchmark
+  public TerritoryGraph buildTerritoryGraph() {
+    return TerritoryGraph.build(this.map.getWorld(), this.map.getTerritories().size());
+  }
+}
@@ -0,0 +1,231 @@
+package com.spamalot.dolt.cli;
+
+import com.spamalot.dolt.map.DoltMap;
+import com.spamalot.dolt.map.MapFile;
+import com.spamalot.dolt.map.MapTile;
+import com.spamalot.dolt.map.TerritoryGraph;
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.WorldTileType;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generate every map of a {@link BatchJobSpec} on a fixed pool of workers and
+ * write each map out as soon as it is done. Progress and the closing report
+ * go to the log, never to the result stream.
+ *
+ * <p>
+ * At most threads plus queue capacity maps are generated or waiting to be
+ * written at once. When that many are outstanding, the submitting thread
+ * stops submitting and writes the next finished map instead, so memory stays
+ * bounded however many jobs there are.
+ *
+ * @author gej
+ *
+ */
+final class BatchGenerator {
+  /** Loggit. */
+  private static final Logger LOGGER = LoggerFactory.getLogger(BatchGenerator.class);
+
+  /** Log progress every this many maps. */
+  private static final int PROGRESS_INTERVAL = 1000;
+
+  /** What to generate. */
+  private final BatchJobSpec spec;
+
+  /** Generation times of finished maps, in nanoseconds. */
+  private final LatencyHistogram latencies = new LatencyHistogram();
+
+  /** Number of finished maps. */
+  private long finished;
+
+  /** Number of jobs that threw. */
+  private long failed;
+
+  /** Where JSON goes. */
+  private Writer json;
+
+  /** A generated map and how long it took. */
+  private static final class Result {
+    /** The job. */
+    private final BatchJobSpec.Job job;
+
+    /** The map. */
+    private final DoltMap map;
+
+    /** Generation time in nanoseconds. */
+    private final long nanos;
+
+    Result(final BatchJobSpec.Job job, final DoltMap map, final long nanos) {
+      this.job = job;
+      this.map = map;
+      this.nanos = nanos;
+    }
+  }
+
+  BatchGenerator(final BatchJobSpec spec) {
+    this.spec = spec;
+  }
+
+  /**
+   * Run every job.
+   *
+   * @throws IOException          if writing fails
+   * @throws InterruptedException if interrupted while waiting for a worker
+   */
+  void run() throws IOException, InterruptedException {
+    final long jobs = this.spec.getJobCount();
+    final int threads = this.spec.getThreads();
+    final int queue = this.spec.getQueueCapacity();
+    final ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(Math.max(1, queue)), new ThreadPoolExecutor.CallerRunsPolicy());
+    final CompletionService<Result> completions = new ExecutorCompletionService<>(pool);
+    final int maxOutstanding = threads + queue;
+
+    if (this.spec.getFormat() == BatchJobSpec.Format.JSON) {
+      this.json = this.spec.getOutput() == null
+          ? new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))
+          : Files.newBufferedWriter(this.spec.getOutput(), StandardCharsets.UTF_8);
+    } else {
+      Files.createDirectories(this.spec.getOutput());
+    }
+
+    final long start = System.nanoTime();
+    try {
+      int outstanding = 0;
+      for (long n = 0; n < jobs; n++) {
+        if (outstanding == maxOutstanding) {
+          write(completions.take());
+          outstanding--;
+        }
+        final BatchJobSpec.Job job = this.spec.getJob(n);
+        completions.submit(() -> generate(job));
+        outstanding++;
+      }
+      while (outstanding-- > 0) {
+        write(completions.take());
+      }
+    } finally {
+      pool.shutdownNow();
+      if (this.json != null) {
+        if (this.spec.getOutput() == null) {
+          this.json.flush();
+        } else {
+          this.json.close();
+        }
+      }
+    }
+    report(System.nanoTime() - start);
+  }
+
+  private static Result generate(final BatchJobSpec.Job job) {
+    final long start = System.nanoTime();
+    final DoltMap map = new DoltMap(job.getWidth(), job.getHeight(), job.getTerritories(), job.getSeed());
+    return new Result(job, map, System.nanoTime() - start);
+  }
+
+  private void write(final Future<Result> future) throws IOException, InterruptedException {
+    final Result result;
+    try {
+      result = future.get();
+    } catch (ExecutionException e) {
+      this.failed++;
+      LOGGER.error("A job failed.", e.getCause());
+      return;
+    }
+
+    if (this.json != null) {
+      writeJson(result);
+    } else {
+      MapFile.write(result.map, this.spec.getOutput().resolve("map-" + result.job + ".dolt"));
+    }
+
+    this.latencies.record(result.nanos);
+    this.finished++;
+    if (this.finished % PROGRESS_INTERVAL == 0) {
+      LOGGER.info("{} maps done.", this.finished);
+    }
+  }
+
+  private void writeJson(final Result result) throws IOException {
+    final Writer out = this.json;
+    final DoltWorld<MapTile> world = result.map.getWorld();
+    final TerritoryGraph graph = result.map.getTerritoryGraph();
+    out.write("{\"width\":" + world.getWidth() + ",\"height\":" + world.getHeight() + ",\"seed\":"
+        + result.map.getSeed() + ",\"territories\":" + graph.getTerritoryCount() + ",\"micros\":"
+        + result.nanos / 1000 + ",\"land\":[");
+    for (int y = 0; y < world.getHeight(); y++) {
+      if (y > 0) {
+        out.write(',');
+      }
+      out.write('"');
+      for (int x = 0; x < world.getWidth(); x++) {
+        out.write(world.getMapTile(x, y).getType() == WorldTileType.LAND ? '#' : '.');
+      }
+      out.write('"');
+    }
+    out.write("],\"neighbors\":[");
+    for (int t = 0; t < graph.getTerritoryCount(); t++) {
+      if (t > 0) {
+        out.write(',');
+      }
+      out.write('[');
+      for (int n = 0; n < graph.getNeighborCount(t); n++) {
+        if (n > 0) {
+          out.write(',');
+        }
+        out.write(Integer.toString(graph.getNeighbor(t, n)));
+      }
+      out.write(']');
+    }
+    out.write("]}\n");
+    // Hand each map on as soon as it is done, not when the buffer fills.
+    out.flush();
+  }
+
+  private void report(final long wallNanos) {
+    final double seconds = wallNanos / 1e9;
+    LOGGER.info("Generated {} maps ({} failed) in {} s, {} maps/s.", this.finished, this.failed,
+        String.format("%.2f", seconds), String.format("%.1f", this.finished / seconds));
+    if (this.latencies.getCount() > 0) {
+      LOGGER.info("Latency ms: p50 {} p90 {} p99 {} max {}", millis(this.latencies.percentile(50)),
+          millis(this.latencies.percentile(90)), millis(this.latencies.percentile(99)),
+          millis(this.latencies.getMax()));
+    }
+  }
+
+  /**
+   * Get the number of maps generated and written.
+   *
+   * @return the number of maps
+   */
+  long getFinishedCount() {
+    return this.finished;
+  }
+
+  /**
+   * Get the number of jobs that failed.
+   *
+   * @return the number of failed jobs
+   */
+  long getFailedCount() {
+    return this.failed;
+  }
+
+  private static String millis(final long nanos) {
+    return String.format("%.3f", nanos / 1e6);
+  }
+}
@@ -0,0 +1,212 @@
+package com.spamalot.dolt.cli;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * What a batch run generates and where it puts the results. Every
+ * combination of size, territory count and seed is one job.
+ *
+ * <pre>
+ * batch --sizes 40x20,80x40 --territories 10,20 --seeds 1-1000
+ *       [--threads 8] [--queue 16] [--format json|binary] [--out path]
+ * </pre>
+ *
+ * @author gej
+ *
+ */
+final class BatchJobSpec {
+  /** Output formats. */
+  enum Format {
+    /** One JSON object per line. */
+    JSON,
+    /** One MapFile per map in the output directory. */
+    BINARY
+  }
+
+  /** Map widths, parallel to heights. */
+  private final List<Integer> widths = new ArrayList<>();
+
+  /** Map heights, parallel to widths. */
+  private final List<Integer> heights = new ArrayList<>();
+
+  /** Territory counts. */
+  private final List<Integer> territoryCounts = new ArrayList<>();
+
+  /** First seed. */
+  private long firstSeed;
+
+  /** Last seed, inclusive. */
+  private long lastSeed;
+
+  /** Worker threads. */
+  private int threads = Runtime.getRuntime().availableProcessors();
+
+  /** Jobs allowed to wait for a worker. */
+  private int queueCapacity = -1;
+
+  /** Output format. */
+  private Format format = Format.JSON;
+
+  /** Output file or directory, null for standard out. */
+  private Path output;
+
+  private BatchJobSpec() {
+  }
+
+  /**
+   * Parse a job spec from command line arguments.
+   *
+   * @param args the arguments after {@code batch}
+   * @return the spec
+   * @throws IllegalArgumentException if the arguments make no sense
+   */
+  static BatchJobSpec parse(final String[] args) {
+    final BatchJobSpec spec = new BatchJobSpec();
+    boolean seeds = false;
+    for (int i = 0; i < args.length; i++) {
+      checkArgument(i + 1 < args.length, "Missing value for %s.", args[i]);
+      final String value = args[++i];
+      switch (args[i - 1]) {
+        case "--sizes":
+          for (String size : value.split(",")) {
+            final String[] dims = size.split("x");
+            checkArgument(dims.length == 2, "Size %s is not WIDTHxHEIGHT.", size);
+            spec.widths.add(Integer.parseInt(dims[0]));
+            spec.heights.add(Integer.parseInt(dims[1]));
+          }
+          break;
+        case "--territories":
+          for (String count : value.split(",")) {
+            spec.territoryCounts.add(Integer.parseInt(count));
+          }
+          break;
+        case "--seeds":
+          final int dash = value.indexOf('-', 1);
+          spec.firstSeed = Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+          spec.lastSeed = dash < 0 ? spec.firstSeed : Long.parseLong(value.substring(dash + 1));
+          checkArgument(spec.firstSeed <= spec.lastSeed, "Seed range %s is empty.", value);
+          // The difference wraps negative past Long.MAX_VALUE.
+          checkArgument(spec.lastSeed - spec.firstSeed >= 0 && spec.lastSeed - spec.firstSeed < Long.MAX_VALUE,
+              "Seed range %s is too wide.", value);
+          seeds = true;
+          break;
+        case "--threads":
+          spec.threads = Integer.parseInt(value);
+          break;
+        case "--queue":
+          spec.queueCapacity = Integer.parseInt(value);
+          break;
+        case "--format":
+          spec.format = Format.valueOf(value.toUpperCase());
+          break;
+        case "--out":
+          spec.output = Paths.get(value);
+          break;
+        default:
+          throw new IllegalArgumentException("Unknown option " + args[i - 1] + ".");
+      }
+    }
+    checkArgument(!spec.widths.isEmpty(), "No --sizes given.");
+    checkArgument(!spec.territoryCounts.isEmpty(), "No --territories given.");
+    checkArgument(seeds, "No --seeds given.");
+    checkArgument(spec.getSeedCount() <= Long.MAX_VALUE / spec.widths.size() / spec.territoryCounts.size(),
+        "Too many jobs.");
+    checkArgument(spec.threads > 0, "Need at least one thread.");
+    if (spec.queueCapacity < 0) {
+      spec.queueCapacity = spec.threads * 2;
+    }
+    checkArgument(spec.format != Format.BINARY || spec.output != null, "Binary output needs --out.");
+    return spec;
+  }
+
+  /**
+   * Get the number of jobs.
+   *
+   * @return sizes times territory counts times seeds
+   */
+  long getJobCount() {
+    return (long) this.widths.size() * this.territoryCounts.size() * getSeedCount();
+  }
+
+  private long getSeedCount() {
+    return this.lastSeed - this.firstSeed + 1;
+  }
+
+  /**
+   * Get one job. Seeds vary fastest, then territory counts, then sizes.
+   *
+   * @param n which job
+   * @return the job
+   */
+  Job getJob(final long n) {
+    final long seedCount = getSeedCount();
+    final long rest = n / seedCount;
+    final int territories = this.territoryCounts.get((int) (rest % this.territoryCounts.size()));
+    final int size = (int) (rest / this.territoryCounts.size());
+    return new Job(this.widths.get(size), this.heights.get(size), territories, this.firstSeed + n % seedCount);
+  }
+
+  int getThreads() {
+    return this.threads;
+  }
+
+  int getQueueCapacity() {
+    return this.queueCapacity;
+  }
+
+  Format getFormat() {
+    return this.format;
+  }
+
+  Path getOutput() {
+    return this.output;
+  }
+
+  /** One map to generate. */
+  static final class Job {
+    /** Map width. */
+    private final int width;
+
+    /** Map height. */
+    private final int height;
+
+    /** Territories to place. */
+    private final int territories;
+
+    /** Seed. */
+    private final long seed;
+
+    Job(final int width, final int height, final int territories, final long seed) {
+      this.width = width;
+      this.height = height;
+      this.territories = territories;
+      this.seed = seed;
+    }
+
+    int getWidth() {
+      return this.width;
+    }
+
+    int getHeight() {
+      return this.height;
+    }
+
+    int getTerritories() {
+      return this.territories;
+    }
+
+    long getSeed() {
+      return this.seed;
+    }
+
+    @Override
+    public String toString() {
+      return this.width + "x" + this.height + "-" + this.territories + "-" + this.seed;
+    }
+  }
+}
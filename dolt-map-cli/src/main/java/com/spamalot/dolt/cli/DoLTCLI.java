@@ -4,6 +4,8 @@ import com.spamalot.dolt.map.DoltMap;
 import com.spamalot.dolt.map.MapTile;
 import com.spamalot.dolt.world.DoltWorld;
 import com.spamalot.dolt.world.WorldTileType;
+import java.io.IOException;
+import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,11 +28,19 @@ public final class DoLTCLI {
   }
 
   /**
-   * Do something.
+   * Do something. With {@code batch} as the first argument, generate a batch
+   * of maps as described in {@link BatchJobSpec}.
    * 
    * @param args Do something with these
+   * @throws IOException          if batch output fails
+   * @throws InterruptedException if a batch is interrupted
    */
-  public static void main(final String[] args) {
+  public static void main(final String[] args) throws IOException, InterruptedException {
+    if (args.length > 0 && "batch".equals(args[0])) {
+      new BatchGenerator(BatchJobSpec.parse(Arrays.copyOfRange(args, 1, args.length))).run();
+      return;
+    }
+
     final DoltWorld<MapTile> world = new DoltWorld<>(10, 10, MapTile.class);
     MapTile t = world.getMapTile(5, 5);
     t.setType(WorldTileType.LAND);
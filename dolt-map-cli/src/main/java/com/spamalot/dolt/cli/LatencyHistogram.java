@@ -0,0 +1,94 @@
+package com.spamalot.dolt.cli;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Count latencies in buckets of fixed relative width, so percentiles of any
+ * number of samples take the same memory. Values below {@value #SUB_BUCKETS}
+ * are exact; larger ones are reported to within about three percent.
+ *
+ * @author gej
+ *
+ */
+final class LatencyHistogram {
+  /** Buckets per power of two; also the largest exactly counted value. */
+  private static final int SUB_BUCKETS = 32;
+
+  /** Bits needed to index the buckets of one power of two. */
+  private static final int SUB_BUCKET_BITS = Integer.numberOfTrailingZeros(SUB_BUCKETS);
+
+  /** Counts by bucket, enough for any non-negative long. */
+  private final long[] counts = new long[(Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKETS];
+
+  /** Number of values recorded. */
+  private long count;
+
+  /** Largest value recorded. */
+  private long max;
+
+  /**
+   * Record a value.
+   *
+   * @param value the value, not negative
+   */
+  void record(final long value) {
+    checkArgument(value >= 0, "Latency must not be negative.");
+    this.counts[bucketOf(value)]++;
+    this.count++;
+    this.max = Math.max(this.max, value);
+  }
+
+  /**
+   * Get the number of values recorded.
+   *
+   * @return the count
+   */
+  long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Get the largest value recorded.
+   *
+   * @return the largest value, 0 if none
+   */
+  long getMax() {
+    return this.max;
+  }
+
+  /**
+   * Get a nearest rank percentile, rounded up to the top of its bucket.
+   *
+   * @param p percentile, 0 to 100
+   * @return the value, 0 if nothing was recorded
+   */
+  long percentile(final double p) {
+    checkArgument(p >= 0 && p <= 100, "Percentile must be between 0 and 100.");
+    final long rank = Math.max(1, (long) Math.ceil(p / 100.0 * this.count));
+    long seen = 0;
+    for (int bucket = 0; bucket < this.counts.length; bucket++) {
+      seen += this.counts[bucket];
+      if (seen >= rank) {
+        return Math.min(this.max, highestIn(bucket));
+      }
+    }
+    return 0;
+  }
+
+  private static int bucketOf(final long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    final int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  private static long highestIn(final int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    final int shift = bucket / SUB_BUCKETS - 1;
+    final long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    return lowest + (1L << shift) - 1;
+  }
+}
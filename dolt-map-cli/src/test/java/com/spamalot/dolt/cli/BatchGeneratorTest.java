@@ -0,0 +1,112 @@
+package com.spamalot.dolt.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.spamalot.dolt.map.DoltMap;
+import com.spamalot.dolt.map.MapFile;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author gej
+ *
+ */
+public class BatchGeneratorTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test that a JSON batch writes one line per job, through a pipeline much
+   * smaller than the batch.
+   *
+   * @throws Exception if the batch fails
+   */
+  @Test
+  public void testJsonBatch() throws Exception {
+    Path out = folder.getRoot().toPath().resolve("maps.json");
+    BatchGenerator generator = new BatchGenerator(BatchJobSpec.parse(new String[] { "--sizes", "20x10,30x12",
+        "--territories", "3", "--seeds", "-2-2", "--threads", "2", "--queue", "1", "--out", out.toString() }));
+    generator.run();
+    assertEquals(10, generator.getFinishedCount());
+    assertEquals(0, generator.getFailedCount());
+
+    List<String> lines = Files.readAllLines(out, StandardCharsets.UTF_8);
+    assertEquals(10, lines.size());
+    Set<String> seen = new HashSet<>();
+    for (String line : lines) {
+      assertTrue(line, line.startsWith("{\"width\":") && line.endsWith("]}"));
+      String width = line.substring(9, line.indexOf(','));
+      String seed = line.substring(line.indexOf("\"seed\":") + 7, line.indexOf(",\"territories\""));
+      seen.add(width + "/" + seed);
+    }
+    Set<String> expected = new HashSet<>();
+    for (String width : Arrays.asList("20", "30")) {
+      for (int seed = -2; seed <= 2; seed++) {
+        expected.add(width + "/" + seed);
+      }
+    }
+    assertEquals(expected, seen);
+  }
+
+  /**
+   * Test that a binary batch writes one MapFile per job that loads back as
+   * the same map.
+   *
+   * @throws Exception if the batch fails
+   */
+  @Test
+  public void testBinaryBatch() throws Exception {
+    File dir = folder.newFolder("maps");
+    BatchGenerator generator = new BatchGenerator(BatchJobSpec.parse(new String[] { "--sizes", "20x10",
+        "--territories", "3", "--seeds", "1-3", "--threads", "1", "--queue", "0", "--format", "binary", "--out",
+        dir.toString() }));
+    generator.run();
+    assertEquals(3, generator.getFinishedCount());
+    assertEquals(3, dir.list().length);
+
+    DoltMap expected = new DoltMap(20, 10, 3, 2L);
+    try (MapFile file = MapFile.open(dir.toPath().resolve("map-20x10-3-2.dolt"))) {
+      assertEquals(2L, file.getSeed());
+      for (int y = 0; y < 10; y++) {
+        for (int x = 0; x < 20; x++) {
+          assertEquals(expected.getWorld().getMapTile(x, y).getType(), file.getType(x, y));
+        }
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.cli.LatencyHistogram#percentile(double)}.
+   */
+  @Test
+  public void testLatencyHistogram() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    assertEquals(0, histogram.percentile(50));
+    for (long v = 1; v <= 1000; v++) {
+      histogram.record(v * 1_000_000L);
+    }
+    histogram.record(0);
+    assertEquals(1001, histogram.getCount());
+    assertEquals(1_000_000_000L, histogram.getMax());
+    assertEquals(0, histogram.percentile(0));
+    assertEquals(1_000_000_000L, histogram.percentile(100));
+    assertWithin(500_000_000L, histogram.percentile(50));
+    assertWithin(990_000_000L, histogram.percentile(99));
+    histogram.record(Long.MAX_VALUE);
+    assertEquals(Long.MAX_VALUE, histogram.percentile(100));
+  }
+
+  private static void assertWithin(final long expected, final long actual) {
+    assertTrue(actual + " is not near " + expected, Math.abs(actual - expected) <= expected / 32);
+  }
+}
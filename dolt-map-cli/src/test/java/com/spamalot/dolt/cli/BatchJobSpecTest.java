@@ -0,0 +1,115 @@
+package com.spamalot.dolt.cli;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.nio.file.Paths;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class BatchJobSpecTest {
+
+  /**
+   * Test that jobs are the product of sizes, territory counts and seeds, with
+   * seeds varying fastest.
+   */
+  @Test
+  public void testJobs() {
+    BatchJobSpec spec = BatchJobSpec
+        .parse(new String[] { "--sizes", "40x20,80x40", "--territories", "10,20,30", "--seeds", "5-8" });
+    assertEquals(2 * 3 * 4, spec.getJobCount());
+    assertJob(spec.getJob(0), 40, 20, 10, 5);
+    assertJob(spec.getJob(3), 40, 20, 10, 8);
+    assertJob(spec.getJob(4), 40, 20, 20, 5);
+    assertJob(spec.getJob(12), 80, 40, 10, 5);
+    assertJob(spec.getJob(23), 80, 40, 30, 8);
+
+    assertEquals(BatchJobSpec.Format.JSON, spec.getFormat());
+    assertNull(spec.getOutput());
+    assertEquals(Runtime.getRuntime().availableProcessors(), spec.getThreads());
+    assertEquals(2 * spec.getThreads(), spec.getQueueCapacity());
+  }
+
+  /**
+   * Test seed ranges with negative ends and a single seed.
+   */
+  @Test
+  public void testNegativeSeeds() {
+    BatchJobSpec spec = BatchJobSpec.parse(new String[] { "--sizes", "4x4", "--territories", "1", "--seeds", "-3--1" });
+    assertEquals(3, spec.getJobCount());
+    assertEquals(-3, spec.getJob(0).getSeed());
+    assertEquals(-1, spec.getJob(2).getSeed());
+
+    spec = BatchJobSpec.parse(new String[] { "--sizes", "4x4", "--territories", "1", "--seeds", "-2-1" });
+    assertEquals(4, spec.getJobCount());
+    assertEquals(1, spec.getJob(3).getSeed());
+
+    spec = BatchJobSpec.parse(new String[] { "--sizes", "4x4", "--territories", "1", "--seeds", "-7" });
+    assertEquals(1, spec.getJobCount());
+    assertEquals(-7, spec.getJob(0).getSeed());
+
+    // The widest range that still has a job count.
+    spec = BatchJobSpec
+        .parse(new String[] { "--sizes", "4x4", "--territories", "1", "--seeds", "1-" + Long.MAX_VALUE });
+    assertEquals(Long.MAX_VALUE, spec.getJobCount());
+    assertEquals(Long.MAX_VALUE, spec.getJob(Long.MAX_VALUE - 1).getSeed());
+  }
+
+  /**
+   * Test the optional settings.
+   */
+  @Test
+  public void testOptions() {
+    BatchJobSpec spec = BatchJobSpec.parse(new String[] { "--sizes", "4x4", "--territories", "1", "--seeds", "1",
+        "--threads", "3", "--queue", "0", "--format", "binary", "--out", "maps" });
+    assertEquals(3, spec.getThreads());
+    assertEquals(0, spec.getQueueCapacity());
+    assertEquals(BatchJobSpec.Format.BINARY, spec.getFormat());
+    assertEquals(Paths.get("maps"), spec.getOutput());
+  }
+
+  /**
+   * Test that bad specs are refused.
+   */
+  @Test
+  public void testBadInput() {
+    assertRefused("--sizes", "40by20", "--territories", "1", "--seeds", "1");
+    assertRefused("--sizes", "40x", "--territories", "1", "--seeds", "1");
+    assertRefused("--sizes", "40x20", "--territories", "ten", "--seeds", "1");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds", "5-3");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds", "1-");
+    assertRefused("--sizes", "40x20", "--territories", "1");
+    assertRefused("--territories", "1", "--seeds", "1");
+    assertRefused("--sizes", "40x20", "--seeds", "1");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds", "1", "--threads", "0");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds", "1", "--format", "xml");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds", "1", "--format", "binary");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds", "1", "--colour", "red");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds");
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds",
+        Long.MIN_VALUE + "-" + Long.MAX_VALUE);
+    assertRefused("--sizes", "40x20", "--territories", "1", "--seeds", "0-" + Long.MAX_VALUE);
+    assertRefused("--sizes", "40x20,80x40", "--territories", "1", "--seeds", "0-" + Long.MAX_VALUE / 2);
+  }
+
+  private static void assertJob(final BatchJobSpec.Job job, final int width, final int height,
+      final int territories, final long seed) {
+    assertEquals(width, job.getWidth());
+    assertEquals(height, job.getHeight());
+    assertEquals(territories, job.getTerritories());
+    assertEquals(seed, job.getSeed());
+  }
+
+  private static void assertRefused(final String... args) {
+    try {
+      BatchJobSpec.parse(args);
+      fail("Spec should have been refused: " + String.join(" ", args));
+    } catch (IllegalArgumentException e) {
+      // Expected.
+    }
+  }
+}
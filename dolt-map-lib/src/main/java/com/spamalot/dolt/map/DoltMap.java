@@ -1,35 +1,25 @@
 package com.spamalot.dolt.map;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
 import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.RandomSource;
+import com.spamalot.dolt.world.TileLayout;
+import com.spamalot.dolt.world.WorldTileType;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
-import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-/*
- * Generating a new Territory, arguments are minimum size and maximum size for territory.
- * 
- * 1. Generate a random size for the territory between minimum size and maximum size.
- * 
- * 2. Get a Random Territory that is not land locked.
- * 
- * 2.5 If no territory is found, world building is over.
- * 
- * 3. If Territory has no water tiles or all water tiles are marked off limits, mark as land locked. Goto 2.
- * 
- * 4. Get Random Water tile that isn't marked off limits.
- * 
- * 4.5 if no water file is found, or all are off limits, mark territory as land locked, goto 2.
- *  
- * 5. Check how many water tiles are available.  If >= minimum size and <= size from step 1 then return water tile 
- * from step 4 to be used for start tile of new Territory. 
- * 
- * 6. If available water tiles < minimum size, mark all as off limits.
- * 
- * 7. Goto 4.
- */
 /**
  * Contain the Map and Territories.
  * 
@@ -41,169 +31,291 @@ public class DoltMap {
   private static final Logger LOGGER = LoggerFactory.getLogger(DoltMap.class);
 
   /**
-   * A Random Number Generator.
+   * Default minimum size of a Territory.
    */
-  private static final Random RNG = new Random();
+  private static final int DEFAULT_MIN_TERRITORY_SIZE = 10;
 
   /**
-   * When creating a Territory it can fail if there are not enough water tiles for
-   * the given size. This is the number of times to attempt to build.
+   * Default maximum size of a territory.
    */
-  private static final int TERRITORY_BUILD_ATTEMPTS = 100;
+  private static final int DEFAULT_MAX_TERRITORY_SIZE = 30;
 
   /**
-   * Default minimum size of a Territory.
+   * Default number of times to try growing a Territory from one start tile.
    */
-  private static final int DEFAULT_MIN_TERRITORY_SIZE = 10;
+  private static final int DEFAULT_BUILD_ATTEMPTS = 100;
 
   /**
-   * Default maximum size of a territory.
+   * Narrowest stripe worth growing territories in on its own thread.
    */
-  private static final int DEFAULT_MAX_TERRITORY_SIZE = 30;
+  private static final int MIN_REGION_WIDTH = 2 * DEFAULT_MAX_TERRITORY_SIZE;
 
   /**
    * The territories in this Map.
    */
   private final List<Territory> territories = new ArrayList<>();
 
+  /**
+   * Which territories border which.
+   */
+  private final TerritoryGraph territoryGraph;
+
+  /**
+   * Where the territories are.
+   */
+  private final TerritoryIndex territoryIndex;
+
   /**
    * The Game Map for this World.
    */
   private final DoltWorld<MapTile> gameMap;
 
   /**
-   * The DoltMap is a DoltWorld and the list of Territories in it.
+   * The seed this Map was generated from.
+   */
+  private final long seed;
+
+  /**
+   * The Random Number Generator for this Map, seeded with {@link #seed}.
+   */
+  private final RandomSource rng;
+
+  /**
+   * Told what happens during generation.
+   */
+  private final GenerationListener listener;
+
+  /**
+   * Territories between snapshots sent to the listener, 0 for none.
+   */
+  private final int snapshotInterval;
+
+  /**
+   * Budgets and cancellation of the generation.
+   */
+  private final GenerationControl control;
+
+  /**
+   * The DoltMap is a DoltWorld and the list of Territories in it. The seed is
+   * picked at random; see {@link #getSeed()} to reproduce the Map.
    * 
    * @param mapWidth       the map's width
    * @param mapHeight      the map's height
    * @param numTerritories the number of territories to put in the map
    */
   public DoltMap(final int mapWidth, final int mapHeight, final int numTerritories) {
-    this.gameMap = new DoltWorld<>(mapWidth, mapHeight, MapTile.class);
+    this(new Builder().setWidth(mapWidth).setHeight(mapHeight).setTerritories(numTerritories));
+  }
 
-    addTerritories(numTerritories, DEFAULT_MIN_TERRITORY_SIZE, DEFAULT_MAX_TERRITORY_SIZE);
+  /**
+   * The DoltMap is a DoltWorld and the list of Territories in it. The same
+   * arguments always produce the same Map.
+   * 
+   * @param mapWidth       the map's width
+   * @param mapHeight      the map's height
+   * @param numTerritories the number of territories to put in the map
+   * @param seed           seed for the random number generator
+   */
+  public DoltMap(final int mapWidth, final int mapHeight, final int numTerritories, final long seed) {
+    this(new Builder().setWidth(mapWidth).setHeight(mapHeight).setTerritories(numTerritories).setSeed(seed));
+  }
 
-    for (Territory territory : this.territories) {
-      territory.findNeighbors();
-    }
+  /**
+   * Generate a Map as described by a Builder.
+   * 
+   * @param builder the Builder
+   */
+  private DoltMap(final Builder builder) {
+    this(builder, builder.newControl());
   }
 
   /**
-   * Add territories to the map.
+   * Generate a Map as described by a Builder, under a control that may stop
+   * it early.
    * 
-   * @param numTerritories   Number of territories to add
-   * @param minTerritorySize minimum size of territories
-   * @param maxTerritorySize maximum size of territories
-   */
-  private void addTerritories(final int numTerritories, final int minTerritorySize, final int maxTerritorySize) {
-    // Make the first territory. TODO: be more random in initial placement.
-    final Territory territory = new Territory.Builder().setMinSize(minTerritorySize).setMaxSize(maxTerritorySize)
-        .setStartTile(this.gameMap.getMapTile(0, 0)).build();
-    this.territories.add(territory);
-
-    int count = 1;
-    Territory rndTerritory = getRandomTerritoryNotLandLocked();
-    while (rndTerritory != null && count < numTerritories) {
-
-      MapTile tile = Territory.getRandomAdjacentWaterTile(rndTerritory);
-      if (tile == null) {
-        rndTerritory.setLandLocked();
-        rndTerritory = getRandomTerritoryNotLandLocked();
-        continue;
-      }
-      int rndSize = getRandomTargetSize(minTerritorySize, maxTerritorySize);
-      Set<MapTile> cnt = Territory.countWaterTilesAvailableWithMax(tile, rndSize);
+   * @param builder the Builder
+   * @param control budgets and cancellation of the generation
+   * @throws java.util.concurrent.CancellationException if the generation was
+   *                                                    cancelled or ran out of
+   *                                                    time or attempts
+   */
+  private DoltMap(final Builder builder, final GenerationControl control) {
+    this.control = control;
+    this.control.start();
+    this.seed = builder.seed;
+    this.rng = RandomSource.seeded(this.seed);
+    this.listener = builder.listener;
+    this.snapshotInterval = builder.snapshotInterval;
 
-      if (cnt.size() < minTerritorySize) {
-        for (MapTile gjkdf : cnt) {
-          gjkdf.setOffLimits(true);
-        }
-        rndTerritory = getRandomTerritoryNotLandLocked();
-        continue;
-      }
+    long start = System.nanoTime();
+    this.gameMap = new DoltWorld<>(builder.width, builder.height, MapTile::new, builder.layout, false);
+    start = phaseCompleted("world", start);
 
-      int max = maxTerritorySize;
-      if (cnt.size() <= maxTerritorySize) {
-        max = cnt.size();
-      }
-      generateTerritory(tile, minTerritorySize, max);
-      count++;
-      rndTerritory = getRandomTerritoryNotLandLocked();
+    final int regions = Math.max(1, Math.min(builder.regions, builder.width / MIN_REGION_WIDTH));
+    if (regions == 1) {
+      TerritoryGenerator generator = new TerritoryGenerator(this.gameMap, 0, builder.width, this.rng,
+          DEFAULT_MIN_TERRITORY_SIZE, DEFAULT_MAX_TERRITORY_SIZE, this.listener, this.snapshotInterval,
+          this.control);
+      generator.addTerritories(builder.numTerritories);
+      this.territories.addAll(generator.getTerritories());
+      start = phaseCompleted("territories", start);
+    } else {
+      start = addTerritoriesInParallel(builder.numTerritories, regions, builder.pool, start);
+    }
 
-      LOGGER.info("Intermediate result: {}", this);
+    for (int i = 0; i < this.territories.size(); i++) {
+      this.territories.get(i).setId(i);
     }
+    this.territoryGraph = TerritoryGraph.build(this.gameMap, this.territories.size());
+    this.territoryIndex = new TerritoryIndex(this.territories, this.gameMap.getWidth(), this.gameMap.getHeight());
+    phaseCompleted("neighbors", start);
   }
 
   /**
-   * Determine a random size to make a Territory.
+   * Report a finished phase to the listener.
    * 
-   * @param minSize minimum size to make a Territory
-   * @param maxSize maximum size to make a Territory
-   * @return A size to make the Territory.
+   * @param phase name of the phase
+   * @param start {@link System#nanoTime()} when the phase started
+   * @return {@link System#nanoTime()} now, when the next phase starts
    */
-  private static int getRandomTargetSize(final int minSize, final int maxSize) {
-    if (minSize > maxSize) {
-      throw new IllegalArgumentException("Minimum Territory size must be less than or equal to maximum size.");
+  private long phaseCompleted(final String phase, final long start) {
+    final long now = System.nanoTime();
+    this.listener.phaseCompleted(phase, now - start);
+    return now;
+  }
+
+  /**
+   * Grow territories in vertical stripes concurrently, then finish up on the
+   * whole Map.
+   *
+   * <p>
+   * The last column of every stripe but the final one is turned into land
+   * first, so no territory can grow across a stripe border and no thread
+   * touches a tile another thread writes. Every stripe gets its own random
+   * source split off this Map's source in stripe order, so the result does
+   * not depend on scheduling.
+   *
+   * <p>
+   * Reconciliation runs on the calling thread: the border columns go back to
+   * water, water the stripes marked off limits next to a border is opened up
+   * again, territories next to either get it back as coast, and a normal
+   * single threaded pass adds whatever territories the stripes could not
+   * fit.
+   * 
+   * @param numTerritories Number of territories to add
+   * @param regions        Number of stripes
+   * @param pool           Pool to grow the stripes on
+   * @param start          {@link System#nanoTime()} when this phase started
+   * @return {@link System#nanoTime()} when the last phase finished
+   */
+  private long addTerritoriesInParallel(final int numTerritories, final int regions, final ForkJoinPool pool,
+      final long start) {
+    final int width = this.gameMap.getWidth();
+    final int height = this.gameMap.getHeight();
+
+    final List<TerritoryGenerator> generators = new ArrayList<>(regions);
+    final List<ForkJoinTask<?>> tasks = new ArrayList<>(regions);
+    for (int r = 0; r < regions; r++) {
+      final int left = (int) ((long) width * r / regions);
+      final int right = (int) ((long) width * (r + 1) / regions);
+      final boolean last = r == regions - 1;
+      final int stripeWidth = last ? right - left : right - left - 1;
+      if (!last) {
+        for (int y = 0; y < height; y++) {
+          this.gameMap.getMapTile(right - 1, y).setType(WorldTileType.LAND);
+        }
+      }
+
+      final int quota = (int) ((long) numTerritories * (r + 1) / regions)
+          - (int) ((long) numTerritories * r / regions);
+      final TerritoryGenerator generator = new TerritoryGenerator(this.gameMap, left, stripeWidth, this.rng.split(),
+          DEFAULT_MIN_TERRITORY_SIZE, DEFAULT_MAX_TERRITORY_SIZE, this.listener, this.snapshotInterval,
+          this.control);
+      generators.add(generator);
+      tasks.add(ForkJoinTask.adapt(() -> generator.addTerritories(quota)));
     }
 
-    int targetSize;
-    if (minSize == maxSize) {
-      targetSize = minSize;
-    } else {
-      targetSize = minSize + RNG.nextInt(maxSize - minSize + 1);
+    for (ForkJoinTask<?> task : tasks) {
+      pool.execute(task);
     }
+    for (ForkJoinTask<?> task : tasks) {
+      task.join();
+    }
+    final long reconcileStart = phaseCompleted("regions", start);
 
-    return targetSize;
+    for (int r = 0; r < regions - 1; r++) {
+      final int border = (int) ((long) width * (r + 1) / regions) - 1;
+      for (int y = 0; y < height; y++) {
+        this.gameMap.getMapTile(border, y).setType(WorldTileType.WATER);
+      }
+    }
+    // Created after the borders are water again so it labels them as such.
+    final TerritoryGenerator reconciler = new TerritoryGenerator(this.gameMap, 0, width, this.rng,
+        DEFAULT_MIN_TERRITORY_SIZE, DEFAULT_MAX_TERRITORY_SIZE, this.listener, this.snapshotInterval,
+        this.control);
+    for (TerritoryGenerator generator : generators) {
+      for (Territory territory : generator.getTerritories()) {
+        reconciler.addTerritory(territory);
+      }
+    }
+    for (int r = 0; r < regions - 1; r++) {
+      reconciler.reopenBorder((int) ((long) width * (r + 1) / regions) - 1);
+    }
+
+    final int placed = reconciler.getTerritories().size();
+    if (placed < numTerritories) {
+      LOGGER.info("Stripes placed {} territories, adding the rest on the whole map.", placed);
+    }
+    // Runs even when the stripes placed enough, to send the last snapshot.
+    reconciler.addTerritories(numTerritories);
+    this.territories.addAll(reconciler.getTerritories());
+    return phaseCompleted("reconcile", reconcileStart);
   }
 
   /**
-   * Generate a new Territory using the water tile given as a starting point. It
-   * is assumed that there is enough space to construct the territory.
+   * Get the World under this Map.
    * 
-   * @param tile             Water tile to start making territory
-   * @param minTerritorySize Minimum size to make this territory
-   * @param maxTerritorySize Maximum size to make this territory
-   */
-  private void generateTerritory(final MapTile tile, final int minTerritorySize, final int maxTerritorySize) {
-    // TODO: Move space checking into here.
-    // TODO: Maybe determine size outside of this method.
-    Territory newTerritory = null;
-    int attempts = TERRITORY_BUILD_ATTEMPTS;
-    while (newTerritory == null && attempts-- > 0) {
-      MapTile startTile = tile;
-      newTerritory = new Territory.Builder().setStartTile(startTile).setMaxSize(maxTerritorySize)
-          .setMinSize(minTerritorySize).build();
-    }
-
-    if (newTerritory != null) {
-      if (LOGGER.isInfoEnabled()) {
-        LOGGER.info("Used {} attempts.", TERRITORY_BUILD_ATTEMPTS - attempts);
-      }
-      this.territories.add(newTerritory);
-    }
+   * @return the World
+   */
+  public DoltWorld<MapTile> getWorld() {
+    return this.gameMap;
   }
 
   /**
-   * Get a random Territory that is not land locked.
+   * Get the territories in this Map, in the order they were placed.
    * 
-   * @return a Territory.
-   */
-  private Territory getRandomTerritoryNotLandLocked() {
-    // TODO: When adding islands to the game, will need to modify this.
-    int count = 0;
-    Territory result = null;
-    for (Territory t : this.territories) {
-      if (t.isLandLocked()) {
-        continue;
-      }
+   * @return the territories
+   */
+  List<Territory> getTerritories() {
+    return this.territories;
+  }
 
-      count++;
-      if (RNG.nextInt(count) == 0) {
-        result = t;
-      }
-    }
+  /**
+   * Get the graph of which territories border which, by territory id.
+   * 
+   * @return the graph
+   */
+  public TerritoryGraph getTerritoryGraph() {
+    return this.territoryGraph;
+  }
 
-    return result;
+  /**
+   * Get the bounding boxes and centroids of the territories, indexed for
+   * viewport and nearest territory queries.
+   * 
+   * @return the index
+   */
+  public TerritoryIndex getTerritoryIndex() {
+    return this.territoryIndex;
+  }
+
+  /**
+   * Get the seed this Map was generated from.
+   * 
+   * @return the seed
+   */
+  public long getSeed() {
+    return this.seed;
   }
 
   @Override
@@ -211,4 +323,217 @@ public class DoltMap {
     return "DoltWorld [gameMap=\n" + this.gameMap + "\nnumber of Territories: " + this.territories.size() + "]";
   }
 
+  /**
+   * Describe a Map to generate.
+   * 
+   * @author gej
+   *
+   */
+  public static class Builder {
+    private int width;
+
+    private int height;
+
+    private int numTerritories;
+
+    private long seed = new SplittableRandom().nextLong();
+
+    private int regions = 1;
+
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private GenerationListener listener = GenerationListener.NONE;
+
+    private int snapshotInterval;
+
+    private int buildAttempts = DEFAULT_BUILD_ATTEMPTS;
+
+    private TileLayout layout = TileLayout.ROW_MAJOR;
+
+    private long timeBudgetNanos = GenerationControl.NO_TIME_LIMIT;
+
+    private long attemptBudget = GenerationControl.NO_ATTEMPT_LIMIT;
+
+    /**
+     * Start describing a Map.
+     */
+    public Builder() {
+
+    }
+
+    public Builder setWidth(final int mapWidth) {
+      this.width = mapWidth;
+      return this;
+    }
+
+    public Builder setHeight(final int mapHeight) {
+      this.height = mapHeight;
+      return this;
+    }
+
+    public Builder setTerritories(final int territories) {
+      this.numTerritories = territories;
+      return this;
+    }
+
+    public Builder setSeed(final long mapSeed) {
+      this.seed = mapSeed;
+      return this;
+    }
+
+    /**
+     * Grow territories in this many vertical stripes concurrently. The stripe
+     * count is part of the layout: the same seed with a different stripe count
+     * gives a different Map. Maps too narrow for the stripes asked for use
+     * fewer of them.
+     * 
+     * @param stripes number of stripes, 1 for single threaded generation
+     * @return this Builder
+     */
+    public Builder setRegions(final int stripes) {
+      checkArgument(stripes > 0, "There must be at least one region.");
+      this.regions = stripes;
+      return this;
+    }
+
+    public Builder setPool(final ForkJoinPool forkJoinPool) {
+      this.pool = forkJoinPool;
+      return this;
+    }
+
+    /**
+     * Report what happens during generation. The listener must be thread safe
+     * if more than one region is used.
+     * 
+     * @param generationListener the listener
+     * @return this Builder
+     */
+    public Builder setListener(final GenerationListener generationListener) {
+      this.listener = checkNotNull(generationListener);
+      return this;
+    }
+
+    /**
+     * Send the listener a {@link GenerationSnapshot} of the changed tiles
+     * every time this many more territories are placed in a region, and once
+     * more when the region is done.
+     * 
+     * @param territories territories between snapshots, 0 for no snapshots
+     * @return this Builder
+     */
+    public Builder setSnapshotInterval(final int territories) {
+      checkArgument(territories >= 0, "Snapshot interval must not be negative.");
+      this.snapshotInterval = territories;
+      return this;
+    }
+
+    /**
+     * Arrange the World's tiles in memory this way. The layout does not change
+     * the Map a seed gives.
+     * 
+     * @param tileLayout the layout
+     * @return this Builder
+     */
+    public Builder setLayout(final TileLayout tileLayout) {
+      this.layout = checkNotNull(tileLayout);
+      return this;
+    }
+
+    /**
+     * Try growing a Territory from one start tile this many times before
+     * picking another start tile.
+     * 
+     * @param attempts number of attempts, at least 1
+     * @return this Builder
+     */
+    public Builder setBuildAttempts(final int attempts) {
+      checkArgument(attempts > 0, "There must be at least one build attempt.");
+      this.buildAttempts = attempts;
+      return this;
+    }
+
+    /**
+     * Give up on generation that takes longer than this. The clock starts
+     * when generation starts, not when it is queued.
+     * 
+     * @param budget how long generation may take
+     * @param unit   unit of the budget
+     * @return this Builder
+     */
+    public Builder setTimeBudget(final long budget, final TimeUnit unit) {
+      checkArgument(budget > 0, "Time budget must be positive.");
+      this.timeBudgetNanos = unit.toNanos(budget);
+      return this;
+    }
+
+    /**
+     * Give up on generation that makes more than this many territory build
+     * attempts in all, counting every retry in every region.
+     * 
+     * @param attempts how many attempts generation may make
+     * @return this Builder
+     */
+    public Builder setAttemptBudget(final long attempts) {
+      checkArgument(attempts > 0, "Attempt budget must be positive.");
+      this.attemptBudget = attempts;
+      return this;
+    }
+
+    /**
+     * Generate the Map on the calling thread.
+     * 
+     * @return the Map
+     * @throws CancellationException if the thread was interrupted or the time
+     *                               or attempt budget ran out
+     */
+    public DoltMap build() {
+      return new DoltMap(this);
+    }
+
+    /**
+     * Generate the Map on an executor. Cancelling the future stops generation
+     * at its next checkpoint, between territories. A generation that runs
+     * past its time or attempt budget completes the future with a
+     * {@link TimeoutException}. Progress goes to the listener as usual.
+     *
+     * <p>
+     * The generation blocks its thread for as long as it runs, so any
+     * executor works, including one that starts a thread per task.
+     * Do not change this Builder until the future is done.
+     * 
+     * @param executor where to run the generation
+     * @return the future Map
+     */
+    public CompletableFuture<DoltMap> buildAsync(final Executor executor) {
+      checkNotNull(executor);
+      final GenerationControl generationControl = newControl();
+      final CompletableFuture<DoltMap> future = new CompletableFuture<>();
+      future.whenComplete((map, failure) -> {
+        if (future.isCancelled()) {
+          generationControl.cancel();
+        }
+      });
+      executor.execute(() -> {
+        if (future.isDone()) {
+          return;
+        }
+        try {
+          future.complete(new DoltMap(this, generationControl));
+        } catch (CancellationException e) {
+          if (generationControl.isOverBudget()) {
+            future.completeExceptionally(new TimeoutException(e.getMessage()));
+          } else {
+            future.cancel(false);
+          }
+        } catch (RuntimeException | Error e) {
+          future.completeExceptionally(e);
+        }
+      });
+      return future;
+    }
+
+    private GenerationControl newControl() {
+      return new GenerationControl(this.buildAttempts, this.timeBudgetNanos, this.attemptBudget);
+    }
+  }
 }
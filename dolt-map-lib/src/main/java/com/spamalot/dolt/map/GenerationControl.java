@@ -0,0 +1,120 @@
+package com.spamalot.dolt.map;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The limits one generation runs under, and the flag that cancels it.
+ * Generation calls {@link #checkpoint()} between territories and
+ * {@link #checkpointAttempt()} before every territory build attempt, so a
+ * cancelled or over budget generation stops within one territory of being
+ * told.
+ *
+ * @author gej
+ *
+ */
+final class GenerationControl {
+  /** Time budget meaning no budget. */
+  static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+
+  /** Attempt budget meaning no budget. */
+  static final long NO_ATTEMPT_LIMIT = Long.MAX_VALUE;
+
+  /** Times to try growing a territory from one start tile. */
+  private final int buildAttempts;
+
+  /** Time allowed from {@link #start()}, in nanoseconds. */
+  private final long timeBudgetNanos;
+
+  /** Territory build attempts allowed in the whole generation. */
+  private final long attemptBudget;
+
+  /** Territory build attempts made so far, by every region. */
+  private final AtomicLong attemptsMade = new AtomicLong();
+
+  /** {@link System#nanoTime()} by which generation must be done. */
+  private volatile long deadline;
+
+  /** Set when the generation is no longer wanted. */
+  private volatile boolean cancelled;
+
+  /** Set when the generation ran out of time or attempts. */
+  private volatile boolean overBudget;
+
+  GenerationControl(final int buildAttempts, final long timeBudgetNanos, final long attemptBudget) {
+    this.buildAttempts = buildAttempts;
+    this.timeBudgetNanos = timeBudgetNanos;
+    this.attemptBudget = attemptBudget;
+  }
+
+  int getBuildAttempts() {
+    return this.buildAttempts;
+  }
+
+  /**
+   * Start the clock.
+   */
+  void start() {
+    if (this.timeBudgetNanos != NO_TIME_LIMIT) {
+      this.deadline = System.nanoTime() + this.timeBudgetNanos;
+    }
+  }
+
+  /**
+   * Ask generation to stop at its next checkpoint.
+   */
+  void cancel() {
+    this.cancelled = true;
+  }
+
+  /**
+   * Check if generation stopped because it ran out of time or attempts.
+   *
+   * @return true if a budget ran out
+   */
+  boolean isOverBudget() {
+    return this.overBudget;
+  }
+
+  /**
+   * Get the number of territory build attempts made so far.
+   *
+   * @return the number of attempts
+   */
+  long getAttemptsMade() {
+    return this.attemptsMade.get();
+  }
+
+  /**
+   * Stop generating if the generation was cancelled, its thread was
+   * interrupted or its time ran out.
+   *
+   * @throws CancellationException to stop
+   */
+  void checkpoint() {
+    if (this.cancelled) {
+      throw new CancellationException("Generation was cancelled.");
+    }
+    if (Thread.currentThread().isInterrupted()) {
+      throw new CancellationException("Generation was interrupted.");
+    }
+    if (this.timeBudgetNanos != NO_TIME_LIMIT && System.nanoTime() - this.deadline > 0) {
+      this.overBudget = true;
+      throw new CancellationException("Generation ran past its time budget.");
+    }
+  }
+
+  /**
+   * Count a territory build attempt against the attempt budget, then
+   * {@link #checkpoint()}.
+   *
+   * @throws CancellationException to stop
+   */
+  void checkpointAttempt() {
+    if (this.attemptsMade.incrementAndGet() > this.attemptBudget) {
+      this.overBudget = true;
+      throw new CancellationException("Generation used up its attempt budget.");
+    }
+    checkpoint();
+  }
+}
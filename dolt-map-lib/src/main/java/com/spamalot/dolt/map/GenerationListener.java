@@ -0,0 +1,69 @@
+package com.spamalot.dolt.map;
+
+/**
+ * Told what happens while a DoltMap is generated. Every method does nothing by
+ * default, so implementations only override what they care about.
+ *
+ * <p>
+ * When a Map is generated in more than one region the methods are called from
+ * several threads at once, so implementations must be thread safe.
+ *
+ * @author gej
+ *
+ */
+public interface GenerationListener {
+  /** A listener that ignores everything. */
+  GenerationListener NONE = new GenerationListener() {
+  };
+
+  /**
+   * A Territory was placed on the Map.
+   *
+   * @param tiles    number of tiles in the Territory
+   * @param attempts number of build attempts it took
+   */
+  default void territoryPlaced(final int tiles, final int attempts) {
+  }
+
+  /**
+   * Water tiles were marked off limits because there was no room for a
+   * Territory in them.
+   *
+   * @param tiles number of tiles marked
+   */
+  default void tilesMarkedOffLimits(final int tiles) {
+  }
+
+  /**
+   * A placed Territory ran out of coast.
+   */
+  default void territoryLandLocked() {
+  }
+
+  /**
+   * A flood fill counted available water.
+   *
+   * @param tilesVisited number of tiles the fill visited
+   */
+  default void floodFill(final int tilesVisited) {
+  }
+
+  /**
+   * A phase of generation finished.
+   *
+   * @param phase name of the phase
+   * @param nanos wall clock time it took, in nanoseconds
+   */
+  default void phaseCompleted(final String phase, final long nanos) {
+  }
+
+  /**
+   * Tiles changed. Only called if snapshots were asked for with
+   * {@link DoltMap.Builder#setSnapshotInterval(int)}.
+   *
+   * @param snapshot the tiles that changed in one region since its previous
+   *                 snapshot
+   */
+  default void snapshot(final GenerationSnapshot snapshot) {
+  }
+}
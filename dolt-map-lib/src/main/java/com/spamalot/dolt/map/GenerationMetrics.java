@@ -0,0 +1,160 @@
+package com.spamalot.dolt.map;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A GenerationListener that adds everything up. Counters are cumulative
+ * across every Map generated with the same instance, so one instance can be
+ * shared by a whole server and read through JMX.
+ *
+ * @author gej
+ *
+ */
+public final class GenerationMetrics implements GenerationListener, GenerationMetricsMXBean {
+  /** Territories placed. */
+  private final LongAdder territoriesPlaced = new LongAdder();
+
+  /** Tiles in placed territories. */
+  private final LongAdder territoryTiles = new LongAdder();
+
+  /** Build attempts for placed territories. */
+  private final LongAdder buildAttempts = new LongAdder();
+
+  /** Tiles marked off limits. */
+  private final LongAdder tilesMarkedOffLimits = new LongAdder();
+
+  /** Territories that became land locked. */
+  private final LongAdder landLockedTransitions = new LongAdder();
+
+  /** Flood fills run. */
+  private final LongAdder floodFills = new LongAdder();
+
+  /** Tiles visited by flood fills. */
+  private final LongAdder floodFillTilesVisited = new LongAdder();
+
+  /** Wall clock time by phase. */
+  private final ConcurrentMap<String, LongAdder> phaseNanos = new ConcurrentHashMap<>();
+
+  @Override
+  public void territoryPlaced(final int tiles, final int attempts) {
+    this.territoriesPlaced.increment();
+    this.territoryTiles.add(tiles);
+    this.buildAttempts.add(attempts);
+  }
+
+  @Override
+  public void tilesMarkedOffLimits(final int tiles) {
+    this.tilesMarkedOffLimits.add(tiles);
+  }
+
+  @Override
+  public void territoryLandLocked() {
+    this.landLockedTransitions.increment();
+  }
+
+  @Override
+  public void floodFill(final int tilesVisited) {
+    this.floodFills.increment();
+    this.floodFillTilesVisited.add(tilesVisited);
+  }
+
+  @Override
+  public void phaseCompleted(final String phase, final long nanos) {
+    this.phaseNanos.computeIfAbsent(phase, p -> new LongAdder()).add(nanos);
+  }
+
+  @Override
+  public long getTerritoriesPlaced() {
+    return this.territoriesPlaced.sum();
+  }
+
+  @Override
+  public long getTerritoryTiles() {
+    return this.territoryTiles.sum();
+  }
+
+  @Override
+  public long getBuildAttempts() {
+    return this.buildAttempts.sum();
+  }
+
+  @Override
+  public long getTilesMarkedOffLimits() {
+    return this.tilesMarkedOffLimits.sum();
+  }
+
+  @Override
+  public long getLandLockedTransitions() {
+    return this.landLockedTransitions.sum();
+  }
+
+  @Override
+  public long getFloodFills() {
+    return this.floodFills.sum();
+  }
+
+  @Override
+  public long getFloodFillTilesVisited() {
+    return this.floodFillTilesVisited.sum();
+  }
+
+  @Override
+  public Map<String, Long> getPhaseNanos() {
+    final Map<String, Long> result = new TreeMap<>();
+    for (Map.Entry<String, LongAdder> entry : this.phaseNanos.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().sum());
+    }
+    return result;
+  }
+
+  @Override
+  public void reset() {
+    this.territoriesPlaced.reset();
+    this.territoryTiles.reset();
+    this.buildAttempts.reset();
+    this.tilesMarkedOffLimits.reset();
+    this.landLockedTransitions.reset();
+    this.floodFills.reset();
+    this.floodFillTilesVisited.reset();
+    this.phaseNanos.clear();
+  }
+
+  /**
+   * Publish these metrics on the platform MBean server.
+   *
+   * @param name the JMX object name, e.g.
+   *             {@code com.spamalot.dolt:type=GenerationMetrics}
+   * @throws JMException if the name is bad or already taken
+   */
+  public void register(final String name) throws JMException {
+    register(ManagementFactory.getPlatformMBeanServer(), name);
+  }
+
+  /**
+   * Publish these metrics on an MBean server.
+   *
+   * @param server the MBean server
+   * @param name   the JMX object name
+   * @throws JMException if the name is bad or already taken
+   */
+  public void register(final MBeanServer server, final String name) throws JMException {
+    server.registerMBean(this, new ObjectName(name));
+  }
+
+  @Override
+  public String toString() {
+    return "GenerationMetrics [territoriesPlaced=" + getTerritoriesPlaced() + ", territoryTiles="
+        + getTerritoryTiles() + ", buildAttempts=" + getBuildAttempts() + ", tilesMarkedOffLimits="
+        + getTilesMarkedOffLimits() + ", landLockedTransitions=" + getLandLockedTransitions() + ", floodFills="
+        + getFloodFills() + ", floodFillTilesVisited=" + getFloodFillTilesVisited() + ", phaseNanos="
+        + getPhaseNanos() + "]";
+  }
+}
@@ -0,0 +1,72 @@
+package com.spamalot.dolt.map;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link GenerationMetrics}.
+ *
+ * @author gej
+ *
+ */
+public interface GenerationMetricsMXBean {
+  /**
+   * Get the number of territories placed.
+   *
+   * @return the count
+   */
+  long getTerritoriesPlaced();
+
+  /**
+   * Get the number of tiles in placed territories.
+   *
+   * @return the count
+   */
+  long getTerritoryTiles();
+
+  /**
+   * Get the number of build attempts spent on placed territories.
+   *
+   * @return the count
+   */
+  long getBuildAttempts();
+
+  /**
+   * Get the number of tiles marked off limits.
+   *
+   * @return the count
+   */
+  long getTilesMarkedOffLimits();
+
+  /**
+   * Get the number of territories that became land locked.
+   *
+   * @return the count
+   */
+  long getLandLockedTransitions();
+
+  /**
+   * Get the number of flood fills run.
+   *
+   * @return the count
+   */
+  long getFloodFills();
+
+  /**
+   * Get the number of tiles visited by flood fills.
+   *
+   * @return the count
+   */
+  long getFloodFillTilesVisited();
+
+  /**
+   * Get the total wall clock time spent in each phase.
+   *
+   * @return nanoseconds by phase name
+   */
+  Map<String, Long> getPhaseNanos();
+
+  /**
+   * Set every counter back to zero.
+   */
+  void reset();
+}
@@ -0,0 +1,126 @@
+package com.spamalot.dolt.map;
+
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.WorldTileType;
+
+/**
+ * The tiles that changed in one region of a Map since the previous snapshot
+ * of that region. Only the changed tiles are copied; render the whole World
+ * with {@link #getWorld()} if you really need it.
+ *
+ * @author gej
+ *
+ */
+public final class GenerationSnapshot {
+  /** Flag bit for a land tile. */
+  static final byte LAND = 1;
+
+  /** Flag bit for an off limits tile. */
+  static final byte OFF_LIMITS = 2;
+
+  /** The World being generated. */
+  private final DoltWorld<MapTile> world;
+
+  /** Territories grown in this region so far, not counting adopted ones. */
+  private final int territoriesPlaced;
+
+  /** World indices of the changed tiles. */
+  private final int[] tiles;
+
+  /** State flags of the changed tiles. */
+  private final byte[] flags;
+
+  GenerationSnapshot(final DoltWorld<MapTile> world, final int territoriesPlaced, final int[] tiles,
+      final byte[] flags) {
+    this.world = world;
+    this.territoriesPlaced = territoriesPlaced;
+    this.tiles = tiles;
+    this.flags = flags;
+  }
+
+  /**
+   * Get the World being generated. It keeps changing after the snapshot is
+   * taken.
+   *
+   * @return the World
+   */
+  public DoltWorld<MapTile> getWorld() {
+    return this.world;
+  }
+
+  /**
+   * Get the number of territories placed in this region so far. The pass
+   * that finishes a Map split into regions counts only the territories it
+   * adds itself, not the ones the regions placed.
+   *
+   * @return the number of territories
+   */
+  public int getTerritoriesPlaced() {
+    return this.territoriesPlaced;
+  }
+
+  /**
+   * Get the number of tiles that changed.
+   *
+   * @return the number of tiles
+   */
+  public int getChangedTileCount() {
+    return this.tiles.length;
+  }
+
+  /**
+   * Get the World index ({@code y * width + x}) of a changed tile.
+   *
+   * @param n which changed tile
+   * @return the World index
+   */
+  public int getChangedTileIndex(final int n) {
+    return this.tiles[n];
+  }
+
+  /**
+   * Get the horizontal coordinate of a changed tile.
+   *
+   * @param n which changed tile
+   * @return the horizontal coordinate
+   */
+  public int getChangedTileX(final int n) {
+    return this.tiles[n] % this.world.getWidth();
+  }
+
+  /**
+   * Get the vertical coordinate of a changed tile.
+   *
+   * @param n which changed tile
+   * @return the vertical coordinate
+   */
+  public int getChangedTileY(final int n) {
+    return this.tiles[n] / this.world.getWidth();
+  }
+
+  /**
+   * Get the type of a changed tile when the snapshot was taken.
+   *
+   * @param n which changed tile
+   * @return the type
+   */
+  public WorldTileType getChangedTileType(final int n) {
+    return (this.flags[n] & LAND) != 0 ? WorldTileType.LAND : WorldTileType.WATER;
+  }
+
+  /**
+   * Check if a changed tile was off limits when the snapshot was taken.
+   *
+   * @param n which changed tile
+   * @return true if off limits
+   */
+  public boolean isChangedTileOffLimits(final int n) {
+    return (this.flags[n] & OFF_LIMITS) != 0;
+  }
+
+  @Override
+  public String toString() {
+    return "GenerationSnapshot [territoriesPlaced=" + this.territoriesPlaced + ", changedTiles="
+        + this.tiles.length + "]";
+  }
+}
@@ -0,0 +1,300 @@
+package com.spamalot.dolt.map;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.WorldTileType;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A DoltMap saved in a compact binary file and read back through memory
+ * mapping, so even a huge Map opens without reading or parsing the whole
+ * file.
+ *
+ * <p>
+ * Version 1 of the format, all numbers big endian:
+ * 
+ * <pre>
+ * int   magic "DOLT"
+ * int   version
+ * int   width
+ * int   height
+ * long  seed
+ * int   number of territories
+ * int   number of adjacency entries
+ * byte  tile types, one bit per tile, set for land, (width * height + 7) / 8 bytes, padded to 4
+ * int   territory id of every tile, -1 for none
+ * int   adjacency offsets, number of territories + 1 of them
+ * int   adjacency entries, the neighbors of territory t are entries offset[t] to offset[t + 1]
+ * </pre>
+ * 
+ * Tiles are stored row by row: the tile at (x, y) is number {@code y * width + x}.
+ *
+ * @author gej
+ *
+ */
+public final class MapFile implements Closeable {
+  /** "DOLT" in ASCII. */
+  private static final int MAGIC = 0x444F4C54;
+
+  /** Current format version. */
+  private static final int VERSION = 1;
+
+  /** Size of the fixed header in bytes. */
+  private static final int HEADER_SIZE = 32;
+
+  /** The open file. */
+  private final FileChannel channel;
+
+  /** Width of the Map. */
+  private final int width;
+
+  /** Height of the Map. */
+  private final int height;
+
+  /** Seed the Map was generated from. */
+  private final long seed;
+
+  /** Number of territories. */
+  private final int territoryCount;
+
+  /** Tile type bits. */
+  private final ByteBuffer tileTypes;
+
+  /** Territory id of every tile. */
+  private final IntBuffer territoryIds;
+
+  /** Adjacency offsets. */
+  private final IntBuffer adjacencyOffsets;
+
+  /** Adjacency entries. */
+  private final IntBuffer adjacency;
+
+  private MapFile(final FileChannel channel) throws IOException {
+    this.channel = channel;
+
+    final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+    if (header.getInt() != MAGIC) {
+      throw new IOException("Not a DoLT map file.");
+    }
+    final int version = header.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported DoLT map file version " + version + ".");
+    }
+    this.width = header.getInt();
+    this.height = header.getInt();
+    this.seed = header.getLong();
+    this.territoryCount = header.getInt();
+    final int adjacencyCount = header.getInt();
+
+    final long tiles = (long) this.width * this.height;
+    long position = HEADER_SIZE;
+    this.tileTypes = channel.map(FileChannel.MapMode.READ_ONLY, position, typeBytes(tiles));
+    position += paddedTypeBytes(tiles);
+    this.territoryIds = mapInts(position, tiles);
+    position += tiles * Integer.BYTES;
+    this.adjacencyOffsets = mapInts(position, this.territoryCount + 1L);
+    position += (this.territoryCount + 1L) * Integer.BYTES;
+    this.adjacency = mapInts(position, adjacencyCount);
+  }
+
+  /**
+   * Open a map file. The file stays open until {@link #close()}.
+   *
+   * @param path the file
+   * @return the map file
+   * @throws IOException if the file cannot be read or is not a map file
+   */
+  public static MapFile open(final Path path) throws IOException {
+    final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+    try {
+      return new MapFile(channel);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Save a Map.
+   *
+   * @param map  the Map
+   * @param path the file to write, replaced if it exists
+   * @throws IOException if writing fails
+   */
+  public static void write(final DoltMap map, final Path path) throws IOException {
+    final DoltWorld<MapTile> world = map.getWorld();
+    final TerritoryGraph graph = map.getTerritoryGraph();
+    final int territories = graph.getTerritoryCount();
+    final int w = world.getWidth();
+    final int h = world.getHeight();
+
+    int adjacencyCount = 0;
+    for (int t = 0; t < territories; t++) {
+      adjacencyCount += graph.getNeighborCount(t);
+    }
+
+    try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeInt(w);
+      out.writeInt(h);
+      out.writeLong(map.getSeed());
+      out.writeInt(territories);
+      out.writeInt(adjacencyCount);
+
+      final long tiles = (long) w * h;
+      int bits = 0;
+      for (int y = 0; y < h; y++) {
+        for (int x = 0; x < w; x++) {
+          final long index = (long) y * w + x;
+          if (world.getMapTileUnchecked(x, y).getType() == WorldTileType.LAND) {
+            bits |= 1 << (index & 7);
+          }
+          if ((index & 7) == 7) {
+            out.write(bits);
+            bits = 0;
+          }
+        }
+      }
+      if ((tiles & 7) != 0) {
+        out.write(bits);
+      }
+      for (long pad = typeBytes(tiles); pad < paddedTypeBytes(tiles); pad++) {
+        out.write(0);
+      }
+
+      for (int y = 0; y < h; y++) {
+        for (int x = 0; x < w; x++) {
+          out.writeInt(world.getMapTileUnchecked(x, y).getTerritoryId());
+        }
+      }
+
+      int offset = 0;
+      out.writeInt(offset);
+      for (int t = 0; t < territories; t++) {
+        offset += graph.getNeighborCount(t);
+        out.writeInt(offset);
+      }
+      for (int t = 0; t < territories; t++) {
+        for (int n = 0; n < graph.getNeighborCount(t); n++) {
+          out.writeInt(graph.getNeighbor(t, n));
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the width of the Map.
+   *
+   * @return the width
+   */
+  public int getWidth() {
+    return this.width;
+  }
+
+  /**
+   * Get the height of the Map.
+   *
+   * @return the height
+   */
+  public int getHeight() {
+    return this.height;
+  }
+
+  /**
+   * Get the seed the Map was generated from.
+   *
+   * @return the seed
+   */
+  public long getSeed() {
+    return this.seed;
+  }
+
+  /**
+   * Get the number of territories.
+   *
+   * @return the number of territories
+   */
+  public int getTerritoryCount() {
+    return this.territoryCount;
+  }
+
+  /**
+   * Get the type of a tile.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   * @return the type
+   */
+  public WorldTileType getType(final int x, final int y) {
+    final int index = tileIndex(x, y);
+    return (this.tileTypes.get(index >>> 3) & (1 << (index & 7))) != 0 ? WorldTileType.LAND : WorldTileType.WATER;
+  }
+
+  /**
+   * Get the id of the Territory a tile belongs to.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   * @return the territory id, or -1 for none
+   */
+  public int getTerritoryId(final int x, final int y) {
+    return this.territoryIds.get(tileIndex(x, y));
+  }
+
+  /**
+   * Get the number of neighbors of a Territory.
+   *
+   * @param territory the territory id
+   * @return the number of neighbors
+   */
+  public int getNeighborCount(final int territory) {
+    checkElementIndex(territory, this.territoryCount);
+    return this.adjacencyOffsets.get(territory + 1) - this.adjacencyOffsets.get(territory);
+  }
+
+  /**
+   * Get a neighbor of a Territory.
+   *
+   * @param territory the territory id
+   * @param n         which neighbor
+   * @return the territory id of the neighbor
+   */
+  public int getNeighbor(final int territory, final int n) {
+    checkElementIndex(n, getNeighborCount(territory));
+    return this.adjacency.get(this.adjacencyOffsets.get(territory) + n);
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+
+  private int tileIndex(final int x, final int y) {
+    checkElementIndex(x, this.width);
+    checkElementIndex(y, this.height);
+    return y * this.width + x;
+  }
+
+  private IntBuffer mapInts(final long position, final long count) throws IOException {
+    return this.channel.map(FileChannel.MapMode.READ_ONLY, position, count * Integer.BYTES).asIntBuffer();
+  }
+
+  private static long typeBytes(final long tiles) {
+    return (tiles + 7) / 8;
+  }
+
+  private static long paddedTypeBytes(final long tiles) {
+    return (typeBytes(tiles) + 3) & ~3L;
+  }
+}
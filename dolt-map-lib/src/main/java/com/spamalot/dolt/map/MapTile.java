@@ -12,6 +12,7 @@ public class MapTile extends WorldTile<MapTile> {
 
   public void setOffLimits(boolean b) {
     offLimits = b;
+    markChanged();
   }
 
   public boolean isOffLimits() {
@@ -20,9 +21,20 @@ public class MapTile extends WorldTile<MapTile> {
 
   public void setTerritory(Territory object) {
     territory = object;
+    markChanged();
   }
 
   public Territory getTerritory() {
     return territory;
   }
+
+  /**
+   * Get the id of the Territory this tile belongs to, e.g. as a color key for
+   * a {@link com.spamalot.dolt.world.WorldRenderer}.
+   * 
+   * @return the territory id, or -1 for none
+   */
+  public int getTerritoryId() {
+    return territory == null ? -1 : territory.getId();
+  }
 }
@@ -1,21 +1,22 @@
 package com.spamalot.dolt.map;
 
+import static com.google.common.base.Preconditions.checkElementIndex;
+
 import com.google.common.collect.Range;
+import com.spamalot.dolt.map.util.IndexedSet;
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.FloodFill;
+import com.spamalot.dolt.world.RandomSource;
+import com.spamalot.dolt.world.WaterComponents;
 import com.spamalot.dolt.world.WorldTileType;
-import com.spamalot.dolt.world.grid.Direction;
 
-import java.util.ArrayList;
+import java.util.AbstractSet;
 import java.util.Arrays;
-import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
-import java.util.Queue;
-import java.util.Random;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.Set;
-
-import org.apache.commons.collections4.list.SetUniqueList;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * A Territory is a collection of land cells in a map.
@@ -24,122 +25,358 @@ import org.slf4j.LoggerFactory;
  *
  */
 final class Territory {
+  /** Position of this Territory in its Map, or -1 until it has one. */
+  private int id = -1;
+
   /** Whether this territory has access to water. */
   private boolean landlocked;
 
-  /** Territories bordering this one. */
-  private final Set<Territory> neighborTerritories = new HashSet<>();
+  /** Told when this Territory becomes land locked. */
+  private Consumer<Territory> landLockedListener;
 
   private boolean offLimits;
 
-  /** The MapTiles that make up this Territory. */
-  private final Set<MapTile> territoryTiles = new HashSet<>(new ArrayList<MapTile>());
+  /** The World this Territory is in. */
+  private final DoltWorld<MapTile> world;
 
-  /** Logger. */
-  private static final Logger LOGGER = LoggerFactory.getLogger(Territory.class);
+  /**
+   * World indices, {@code y * width + x}, of the MapTiles that make up this
+   * Territory, in the order they were added. Membership itself is kept by the
+   * tiles; see {@link #containsTile(MapTile)}.
+   */
+  private int[] tileIndices = new int[8];
 
-  /** Random Number Generator. */
-  private static final Random RNG = new Random();
+  /** Number of MapTiles in this Territory. */
+  private int tileCount;
 
-  static Set<MapTile> countWaterTilesAvailableWithMax(final MapTile startTile, final int max) {
+  /** Bounding box of the tiles, kept up to date as tiles are added. */
+  private int minX = Integer.MAX_VALUE;
 
-    Queue<MapTile> tileQueue = new LinkedList<>();
-    tileQueue.add(startTile);
+  private int minY = Integer.MAX_VALUE;
 
-    Set<MapTile> seenTiles = new HashSet<>();
-    seenTiles.add(startTile);
-    int count = 0;
-    while (!tileQueue.isEmpty()) {
-      MapTile waterTile = tileQueue.remove();
-      for (MapTile adjacentWaterTile : waterTile.getAdjacentWaterTiles()) {
-        if (!seenTiles.contains(adjacentWaterTile)) {
-          count++;
+  private int maxX = -1;
 
-          tileQueue.add(adjacentWaterTile);
-          seenTiles.add(adjacentWaterTile);
+  private int maxY = -1;
 
-          if (count == max) {
-            return seenTiles;
-          }
-        }
-      }
-    }
+  /** Sums of the tile coordinates, for the centroid. */
+  private long sumX;
+
+  private long sumY;
+
+  /**
+   * Water tiles adjacent to this Territory that were not off limits when they
+   * were added. May contain stale tiles; see
+   * {@link #getRandomAdjacentWaterTile(Territory, RandomSource)}.
+   */
+  private final IndexedSet<MapTile> frontier = new IndexedSet<>();
+
+  /** Flood fill passes through water tiles only. */
+  private static final Predicate<MapTile> IS_WATER = tile -> tile.getType() == WorldTileType.WATER;
+
+  /**
+   * Create an empty Territory.
+   *
+   * @param world the World it is in
+   */
+  Territory(final DoltWorld<MapTile> world) {
+    this.world = world;
+  }
+
+  /**
+   * Count the water tiles reachable from a starting tile, stopping early once
+   * there are more than enough. The tiles counted are left in the flood fill
+   * engine for the caller to inspect.
+   *
+   * @param floodFill engine to run the search with
+   * @param startTile water tile to start from
+   * @param max       stop after finding this many tiles beyond the start tile
+   * @return the number of tiles reached, including the start tile
+   */
+  static int countWaterTilesAvailableWithMax(final FloodFill<MapTile> floodFill, final MapTile startTile,
+      final int max) {
+    return countWaterTilesAvailableWithMax(floodFill, startTile, max, GenerationListener.NONE);
+  }
 
-    return seenTiles;
+  /**
+   * Count the water tiles reachable from a starting tile and report the fill
+   * to a listener.
+   *
+   * @param floodFill engine to run the search with
+   * @param startTile water tile to start from
+   * @param max       stop after finding this many tiles beyond the start tile
+   * @param listener  told about the fill
+   * @return the number of tiles reached, including the start tile
+   */
+  static int countWaterTilesAvailableWithMax(final FloodFill<MapTile> floodFill, final MapTile startTile,
+      final int max, final GenerationListener listener) {
+    final int count = floodFill.fill(startTile, max + 1, IS_WATER);
+    listener.floodFill(count);
+    return count;
   }
 
-  static Logger getLogger() {
-    return LOGGER;
+  /**
+   * Count the water tiles reachable from a starting tile using the water
+   * labeling, which only flood fills when the size of the body of water is
+   * not known exactly. A fill is reported to the listener.
+   *
+   * @param components water labeling of the region
+   * @param startTile  water tile to start from
+   * @param max        stop after finding this many tiles beyond the start tile
+   * @param listener   told about the fill, if one was needed
+   * @return the number of tiles reached, including the start tile
+   */
+  static int countWaterTilesAvailable(final WaterComponents<MapTile> components, final MapTile startTile,
+      final int max, final GenerationListener listener) {
+    final int count = components.countAvailable(startTile, max + 1);
+    if (components.wasLastCountFlooded()) {
+      listener.floodFill(count);
+    }
+    return count;
   }
 
   /**
    * Find a random water tile adjacent to this Territory.
    *
+   * <p>
+   * The frontier is updated as tiles are added, but tiles that later turn to
+   * land or get marked off limits are only dropped here when they are drawn.
+   * Redrawing after dropping a stale tile keeps the choice uniform over the
+   * tiles that are still usable.
+   *
    * @param territory The territory to check for adjacent water.
+   * @param rng       where to get randomness from
    * @return a random water tile or null if there is no water tile adjacent to
    *         this Territory
    */
-  static MapTile getRandomAdjacentWaterTile(final Territory territory) {
-
-    SetUniqueList<MapTile> waterTiles = SetUniqueList.setUniqueList(new ArrayList<MapTile>());
-
-    for (MapTile landTile : territory.territoryTiles) {
-      for (MapTile water : landTile.getAdjacentWaterTiles()) {
-        // Ignore water tiles marked as not to be used.
-        if (!water.isOffLimits()) {
-          waterTiles.add(water);
-        }
+  static MapTile getRandomAdjacentWaterTile(final Territory territory, final RandomSource rng) {
+    final IndexedSet<MapTile> waterTiles = territory.frontier;
+
+    while (!waterTiles.isEmpty()) {
+      final int index = rng.nextInt(waterTiles.size());
+      MapTile water = waterTiles.get(index);
+      // Ignore water tiles marked as not to be used.
+      if (water.getType() == WorldTileType.WATER && !water.isOffLimits()) {
+        return water;
       }
+      waterTiles.removeAt(index);
     }
 
-    MapTile result = null;
-    if (waterTiles.isEmpty()) {
-      territory.setLandLocked();
-    } else {
-      final int index = RNG.nextInt(waterTiles.size());
-      result = waterTiles.get(index);
-    }
+    territory.setLandLocked();
+    return null;
+  }
 
-    return result;
+  /**
+   * Check if a MapTile belongs to this Territory. The tile knows its owner, so
+   * this is one comparison.
+   *
+   * @param tile the tile
+   * @return true if the tile currently belongs to this Territory
+   */
+  public boolean containsTile(final MapTile tile) {
+    return tile.getTerritory() == this;
   }
 
-  static Random getRng() {
-    return RNG;
+  /**
+   * Get the position of this Territory in its Map.
+   *
+   * @return the id, or -1 if the Map is not finished yet
+   */
+  public int getId() {
+    return this.id;
   }
 
-  public boolean containsTile(final MapTile tile) {
-    return this.territoryTiles.contains(tile);
+  void setId(final int territoryId) {
+    this.id = territoryId;
   }
 
-  public void findNeighbors() {
+  /**
+   * Get the MapTiles that make up this Territory as a read only view. Prefer
+   * {@link #getTileCount()} and {@link #forEachTile(Consumer)}, which do not
+   * create anything.
+   *
+   * @return the tiles
+   */
+  public Set<MapTile> getTerritoryTiles() {
+    return new AbstractSet<MapTile>() {
+      @Override
+      public Iterator<MapTile> iterator() {
+        return new Iterator<MapTile>() {
+          private int next;
+
+          @Override
+          public boolean hasNext() {
+            return this.next < Territory.this.tileCount;
+          }
 
-    List<Direction> directions = Arrays.asList(Direction.DOWN, Direction.UP, Direction.RIGHT, Direction.LEFT);
+          @Override
+          public MapTile next() {
+            if (!hasNext()) {
+              throw new NoSuchElementException();
+            }
+            return getTile(this.next++);
+          }
+        };
+      }
 
-    for (MapTile p : this.territoryTiles) {
+      @Override
+      public int size() {
+        return Territory.this.tileCount;
+      }
 
-      for (final Direction y : directions) {
+      @Override
+      public boolean contains(final Object o) {
+        return o instanceof MapTile && containsTile((MapTile) o);
+      }
+    };
+  }
 
-        MapTile nd = p.get(y);
-        if (isNeighbor(nd)) {
+  /**
+   * Get the number of MapTiles in this Territory.
+   *
+   * @return the number of tiles
+   */
+  public int getTileCount() {
+    return this.tileCount;
+  }
 
-          this.neighborTerritories.add(p.getTerritory());
+  /**
+   * Get the World index, {@code y * width + x}, of a MapTile in this
+   * Territory.
+   *
+   * @param n which tile, in the order they were added
+   * @return the World index
+   */
+  public int getTileIndex(final int n) {
+    checkElementIndex(n, this.tileCount);
+    return this.tileIndices[n];
+  }
 
-        }
+  /**
+   * Get a MapTile in this Territory.
+   *
+   * @param n which tile, in the order they were added
+   * @return the tile
+   */
+  public MapTile getTile(final int n) {
+    return this.world.getMapTile(getTileIndex(n));
+  }
 
-      }
+  /**
+   * Visit each MapTile in this Territory in the order they were added.
+   *
+   * @param action what to do with each tile
+   */
+  public void forEachTile(final Consumer<? super MapTile> action) {
+    for (int n = 0; n < this.tileCount; n++) {
+      action.accept(getTile(n));
     }
   }
 
-  public Set<MapTile> getTerritoryTiles() {
-    return territoryTiles;
+  /**
+   * Add a MapTile to this Territory's list of tiles. The caller also points
+   * the tile at this Territory.
+   *
+   * @param tile the tile
+   */
+  private void addTile(final MapTile tile) {
+    if (this.tileCount == this.tileIndices.length) {
+      this.tileIndices = Arrays.copyOf(this.tileIndices, this.tileCount * 2);
+    }
+    final int x = tile.getX();
+    final int y = tile.getY();
+    this.tileIndices[this.tileCount++] = y * this.world.getWidth() + x;
+    this.minX = Math.min(this.minX, x);
+    this.minY = Math.min(this.minY, y);
+    this.maxX = Math.max(this.maxX, x);
+    this.maxY = Math.max(this.maxY, y);
+    this.sumX += x;
+    this.sumY += y;
   }
 
-  public boolean isLandLocked() {
-    return this.landlocked;
+  /**
+   * Forget every MapTile, the bounding box, the centroid and the frontier, as
+   * if this Territory had never been grown. The caller resets the tiles.
+   */
+  void removeAllTiles() {
+    this.tileCount = 0;
+    this.minX = Integer.MAX_VALUE;
+    this.minY = Integer.MAX_VALUE;
+    this.maxX = -1;
+    this.maxY = -1;
+    this.sumX = 0;
+    this.sumY = 0;
+    this.frontier.clear();
+  }
+
+  /**
+   * Get the left edge of the bounding box.
+   *
+   * @return the smallest horizontal coordinate of a tile, or
+   *         {@link Integer#MAX_VALUE} if there are no tiles
+   */
+  public int getMinX() {
+    return this.minX;
+  }
+
+  /**
+   * Get the top edge of the bounding box.
+   *
+   * @return the smallest vertical coordinate of a tile, or
+   *         {@link Integer#MAX_VALUE} if there are no tiles
+   */
+  public int getMinY() {
+    return this.minY;
+  }
+
+  /**
+   * Get the right edge of the bounding box.
+   *
+   * @return the largest horizontal coordinate of a tile, or -1 if there are no
+   *         tiles
+   */
+  public int getMaxX() {
+    return this.maxX;
+  }
+
+  /**
+   * Get the bottom edge of the bounding box.
+   *
+   * @return the largest vertical coordinate of a tile, or -1 if there are no
+   *         tiles
+   */
+  public int getMaxY() {
+    return this.maxY;
+  }
+
+  /**
+   * Get the mean horizontal coordinate of the tiles.
+   *
+   * @return the centroid's horizontal coordinate, NaN if there are no tiles
+   */
+  public double getCentroidX() {
+    return (double) this.sumX / this.tileCount;
+  }
+
+  /**
+   * Get the mean vertical coordinate of the tiles.
+   *
+   * @return the centroid's vertical coordinate, NaN if there are no tiles
+   */
+  public double getCentroidY() {
+    return (double) this.sumY / this.tileCount;
   }
 
-  private boolean isNeighbor(final MapTile nd) {
-    return nd != null && !this.equals(nd.getTerritory());
+  /**
+   * Get the number of water tiles on the frontier, stale ones included.
+   *
+   * @return the frontier size
+   */
+  int getFrontierSize() {
+    return this.frontier.size();
+  }
+
+  public boolean isLandLocked() {
+    return this.landlocked;
   }
 
   public boolean isOffLimits() {
@@ -147,8 +384,32 @@ final class Territory {
   }
 
   void setLandLocked() {
-    this.landlocked = true;
+    if (!this.landlocked) {
+      this.landlocked = true;
+      if (this.landLockedListener != null) {
+        this.landLockedListener.accept(this);
+      }
+    }
+  }
 
+  /**
+   * Give this Territory a water tile as coast, even if it was land locked.
+   * Used when a tile next to it turns back into water.
+   *
+   * @param water the water tile
+   */
+  void reopenCoast(final MapTile water) {
+    this.frontier.add(water);
+    this.landlocked = false;
+  }
+
+  /**
+   * Register something to be told when this Territory becomes land locked.
+   *
+   * @param listener the listener, or null for none
+   */
+  void setLandLockedListener(final Consumer<Territory> listener) {
+    this.landLockedListener = listener;
   }
 
   public void setOffLimits(final boolean flag) {
@@ -170,15 +431,80 @@ final class Territory {
 
     private MapTile startTile;
 
+    private DoltWorld<MapTile> world;
+
+    private FloodFill<MapTile> floodFill;
+
+    private WaterComponents<MapTile> waterComponents;
+
+    private RandomSource rng = RandomSource.threadLocal();
+
+    private GenerationListener listener = GenerationListener.NONE;
+
+    private TileChangeLog changeLog;
+
+    private GenerationControl control;
+
+    private boolean offLimitsOnFailure = true;
+
     Builder() {
 
     }
 
+    Builder setWorld(final DoltWorld<MapTile> gameMap) {
+      this.world = gameMap;
+      return this;
+    }
+
     Builder setStartTile(final MapTile initTile) {
       this.startTile = initTile;
       return this;
     }
 
+    Builder setFloodFill(final FloodFill<MapTile> engine) {
+      this.floodFill = engine;
+      return this;
+    }
+
+    Builder setWaterComponents(final WaterComponents<MapTile> components) {
+      this.waterComponents = components;
+      return this;
+    }
+
+    Builder setRandom(final RandomSource random) {
+      this.rng = random;
+      return this;
+    }
+
+    Builder setListener(final GenerationListener generationListener) {
+      this.listener = generationListener;
+      return this;
+    }
+
+    Builder setChangeLog(final TileChangeLog log) {
+      this.changeLog = log;
+      return this;
+    }
+
+    Builder setControl(final GenerationControl generationControl) {
+      this.control = generationControl;
+      return this;
+    }
+
+    /**
+     * Choose what happens to the tiles of a Territory that fails to reach its
+     * minimum size. They always go back to water; marking them off limits as
+     * well keeps later Territories out of them, which is wanted once no more
+     * attempts will be made from the same start tile.
+     *
+     * @param flag whether to mark the tiles of a failed Territory off limits
+     * @return this Builder
+     */
+    Builder setOffLimitsOnFailure(final boolean flag) {
+      this.offLimitsOnFailure = flag;
+      return this;
+    }
+
     Builder setMinSize(final int minSize) {
       this.minimumSize = minSize;
       return this;
@@ -192,19 +518,33 @@ final class Territory {
     /**
      * Mark the MapTiles assigned to this Territory as water, but since there failed
      * to be enough of them in a cluster to make a Territory also mark them as off
-     * limits so they won't be used in the future.
+     * limits so they won't be used in the future, unless another attempt is to
+     * be made; see {@link #setOffLimitsOnFailure(boolean)}.
      *
      * @param t The territory.
      */
-    private static void clearTerritoryTiles(final Territory t) {
-      for (MapTile waterTile : t.getTerritoryTiles()) {
+    private void clearTerritoryTiles(final Territory t) {
+      for (int n = 0; n < t.getTileCount(); n++) {
+        final MapTile waterTile = t.getTile(n);
         waterTile.setType(WorldTileType.WATER);
+        if (this.waterComponents != null) {
+          this.waterComponents.tileBecameWater(waterTile);
+        }
         waterTile.setTerritory(null);
-        waterTile.setOffLimits(true);
+        if (this.offLimitsOnFailure) {
+          waterTile.setOffLimits(true);
+        }
+        if (this.changeLog != null) {
+          this.changeLog.record(waterTile);
+        }
       }
+      if (this.offLimitsOnFailure) {
+        this.listener.tilesMarkedOffLimits(t.getTileCount());
+      }
+      t.removeAllTiles();
     }
 
-    private static void generateRandomArea(final MapTile startTile, final int targetSize, final Territory t) {
+    private void generateRandomArea(final MapTile startTile, final int targetSize, final Territory t) {
 
       markAsLandAndAddTileToTerritory(startTile, t);
 
@@ -221,10 +561,10 @@ final class Territory {
       }
     }
 
-    private static MapTile getNextTile(final MapTile tile, final Territory t) {
-      MapTile result = tile.getRandomAdjacentWaterTile();
+    private MapTile getNextTile(final MapTile tile, final Territory t) {
+      MapTile result = tile.getRandomAdjacentWaterTile(this.rng);
       if (result == null) {
-        result = getRandomAdjacentWaterTile(t);
+        result = getRandomAdjacentWaterTile(t, this.rng);
       }
       return result;
     }
@@ -236,7 +576,7 @@ final class Territory {
      * @param maxSize maximum size
      * @return a random size between minSize and maxSize inclusive
      */
-    private static int getRandomTargetSize(final int minSize, final int maxSize) {
+    private int getRandomTargetSize(final int minSize, final int maxSize) {
       if (minSize > maxSize) {
         throw new IllegalArgumentException("Minimum Territory size must be less than or equal to maximum size.");
       }
@@ -245,16 +585,29 @@ final class Territory {
       if (minSize == maxSize) {
         targetSize = minSize;
       } else {
-        targetSize = minSize + getRng().nextInt(maxSize - minSize + 1);
+        targetSize = minSize + this.rng.nextInt(maxSize - minSize + 1);
       }
 
       return targetSize;
     }
 
-    private static void markAsLandAndAddTileToTerritory(final MapTile tile, final Territory t) {
+    private void markAsLandAndAddTileToTerritory(final MapTile tile, final Territory t) {
       tile.setType(WorldTileType.LAND);
+      if (this.waterComponents != null) {
+        this.waterComponents.tileBecameLand(tile);
+      }
       tile.setTerritory(t);
-      t.getTerritoryTiles().add(tile);
+      t.addTile(tile);
+      if (this.changeLog != null) {
+        this.changeLog.record(tile);
+      }
+
+      t.frontier.remove(tile);
+      tile.forEachAdjacentWaterTile(water -> {
+        if (!water.isOffLimits()) {
+          t.frontier.add(water);
+        }
+      });
     }
 
     public Territory build() {
@@ -267,15 +620,20 @@ final class Territory {
      *
      * @param minSize Minimum size of the Territory
      * @param maxSize Maximum size of the Territory.
-     * @return a Territory.
+     * @return a Territory, or null if there was no room or it could not grow
+     *         to its minimum size
      */
     private Territory buildArea(final int minSize, final int maxSize) {
       if (this.startTile.getType() != WorldTileType.WATER) {
         throw new IllegalArgumentException("Start tile must be water.");
       }
+      if (this.control != null) {
+        this.control.checkpointAttempt();
+      }
 
-      int h20avail = countWaterTilesAvailableWithMax(this.startTile, maxSize).size();
-      getLogger().info("There are {} water tiles available.", h20avail);
+      int h20avail = this.waterComponents != null
+          ? countWaterTilesAvailable(this.waterComponents, this.startTile, maxSize, this.listener)
+          : countWaterTilesAvailableWithMax(this.floodFill, this.startTile, maxSize, this.listener);
 
       if (h20avail < minSize) {
         return null;
@@ -286,13 +644,14 @@ final class Territory {
       if (h20avail < targetSize) {
         targetSize = h20avail;
       }
-      Territory result = new Territory();
+      Territory result = new Territory(this.world);
       generateRandomArea(this.startTile, targetSize, result);
 
-      int size = result.getTerritoryTiles().size();
+      int size = result.getTileCount();
 
       if (!this.sizeRange.contains(size)) {
         clearTerritoryTiles(result);
+        return null;
       }
 
       return result;
@@ -0,0 +1,393 @@
+package com.spamalot.dolt.map;
+
+import com.spamalot.dolt.map.util.IndexedSet;
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.FloodFill;
+import com.spamalot.dolt.world.RandomSource;
+import com.spamalot.dolt.world.WaterComponents;
+import com.spamalot.dolt.world.WorldTileType;
+import com.spamalot.dolt.world.grid.Direction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/*
+ * Generating a new Territory, arguments are minimum size and maximum size for territory.
+ * 
+ * 1. Generate a random size for the territory between minimum size and maximum size.
+ * 
+ * 2. Get a Random Territory that is not land locked.
+ * 
+ * 2.5 If no territory is found, world building is over.
+ * 
+ * 3. If Territory has no water tiles or all water tiles are marked off limits, mark as land locked. Goto 2.
+ * 
+ * 4. Get Random Water tile that isn't marked off limits.
+ * 
+ * 4.5 if no water file is found, or all are off limits, mark territory as land locked, goto 2.
+ *  
+ * 5. Check how many water tiles are available.  If >= minimum size and <= size from step 1 then return water tile 
+ * from step 4 to be used for start tile of new Territory. 
+ * 
+ * 6. If available water tiles < minimum size, mark all as off limits.
+ * 
+ * 7. Goto 4.
+ */
+/**
+ * Grow Territories in a vertical stripe of a DoltWorld. Every generator owns
+ * its own random source, flood fill engine and pool of coastal territories,
+ * so generators working on stripes that are walled off from each other can
+ * run on different threads.
+ * 
+ * @author gej
+ *
+ */
+final class TerritoryGenerator {
+  /** Water that was marked as not to be used. */
+  private static final Predicate<MapTile> IS_OFF_LIMITS_WATER = tile -> tile.getType() == WorldTileType.WATER
+      && tile.isOffLimits();
+
+  /**
+   * The World to grow Territories in.
+   */
+  private final DoltWorld<MapTile> gameMap;
+
+  /**
+   * Left edge of the stripe.
+   */
+  private final int stripeX;
+
+  /**
+   * Minimum size of a Territory.
+   */
+  private final int minTerritorySize;
+
+  /**
+   * Maximum size of a Territory.
+   */
+  private final int maxTerritorySize;
+
+  /**
+   * The Random Number Generator for this stripe.
+   */
+  private final RandomSource rng;
+
+  /**
+   * Told what happens during generation.
+   */
+  private final GenerationListener listener;
+
+  /**
+   * Tiles changed since the last snapshot, or null if snapshots are off.
+   */
+  private final TileChangeLog changeLog;
+
+  /**
+   * Take a snapshot every time this many more territories are placed.
+   */
+  private final int snapshotInterval;
+
+  /**
+   * Attempt budget, time budget and cancellation of this generation.
+   */
+  private final GenerationControl control;
+
+  /**
+   * Flood fill engine reused for every water search in this stripe.
+   */
+  private final FloodFill<MapTile> floodFill;
+
+  /**
+   * Bodies of water in this stripe and their sizes, so most room checks are a
+   * lookup instead of a flood fill.
+   */
+  private final WaterComponents<MapTile> waterComponents;
+
+  /**
+   * The territories grown or adopted by this generator.
+   */
+  private final List<Territory> territories = new ArrayList<>();
+
+  /**
+   * The territories that are not land locked yet. A Territory removes itself
+   * when it becomes land locked.
+   */
+  private final IndexedSet<Territory> coastalTerritories = new IndexedSet<>();
+
+  /**
+   * The territories this generator grew itself, not counting adopted ones.
+   */
+  private int territoriesPlaced;
+
+  /**
+   * Create a generator for a stripe of the World.
+   * 
+   * @param world            the World
+   * @param x                left edge of the stripe
+   * @param width            width of the stripe
+   * @param random           where to get randomness from
+   * @param minSize          minimum size of territories
+   * @param maxSize          maximum size of territories
+   * @param listener         told what happens during generation
+   * @param snapshotInterval send the listener a snapshot every time this many
+   *                         more territories are placed, 0 for never
+   * @param control          budgets and cancellation of the generation
+   */
+  TerritoryGenerator(final DoltWorld<MapTile> world, final int x, final int width, final RandomSource random,
+      final int minSize, final int maxSize, final GenerationListener listener, final int snapshotInterval,
+      final GenerationControl control) {
+    this.gameMap = world;
+    this.listener = listener;
+    this.snapshotInterval = snapshotInterval;
+    this.control = control;
+    this.changeLog = snapshotInterval > 0 ? new TileChangeLog(world) : null;
+    this.stripeX = x;
+    this.rng = random;
+    this.minTerritorySize = minSize;
+    this.maxTerritorySize = maxSize;
+    this.floodFill = new FloodFill<>(world, x, 0, width, world.getHeight());
+    this.waterComponents = new WaterComponents<>(world, this.floodFill);
+  }
+
+  /**
+   * Get the territories grown or adopted by this generator, in the order they
+   * were added.
+   * 
+   * @return the territories
+   */
+  List<Territory> getTerritories() {
+    return this.territories;
+  }
+
+  /**
+   * Add territories until there are numTerritories of them or there is no
+   * more room. If there are none yet, the first one starts in the top left
+   * corner of the stripe.
+   * 
+   * @param numTerritories Number of territories to end up with
+   */
+  void addTerritories(final int numTerritories) {
+    if (this.territories.isEmpty()) {
+      // Make the first territory. TODO: be more random in initial placement.
+      final Territory territory = new Territory.Builder().setWorld(this.gameMap)
+          .setMinSize(this.minTerritorySize).setMaxSize(this.maxTerritorySize)
+          .setStartTile(this.gameMap.getMapTile(this.stripeX, 0)).setFloodFill(this.floodFill)
+          .setWaterComponents(this.waterComponents).setRandom(this.rng).setListener(this.listener)
+          .setChangeLog(this.changeLog).setControl(this.control).build();
+      if (territory != null) {
+        placeTerritory(territory, 1);
+      }
+    }
+
+    Territory rndTerritory = getRandomTerritoryNotLandLocked();
+    while (rndTerritory != null && this.territories.size() < numTerritories) {
+      this.control.checkpoint();
+
+      MapTile tile = Territory.getRandomAdjacentWaterTile(rndTerritory, this.rng);
+      if (tile == null) {
+        rndTerritory.setLandLocked();
+        rndTerritory = getRandomTerritoryNotLandLocked();
+        continue;
+      }
+      int rndSize = getRandomTargetSize(this.minTerritorySize, this.maxTerritorySize);
+      int cnt = Territory.countWaterTilesAvailable(this.waterComponents, tile, rndSize, this.listener);
+
+      if (cnt < this.minTerritorySize) {
+        if (!this.waterComponents.wasLastCountFlooded()) {
+          // The size came from the labeling; fill to find the tiles themselves.
+          Territory.countWaterTilesAvailableWithMax(this.floodFill, tile, rndSize, this.listener);
+        }
+        for (int i = 0; i < cnt; i++) {
+          MapTile offLimits = this.floodFill.getVisitedTile(i);
+          offLimits.setOffLimits(true);
+          if (this.changeLog != null) {
+            this.changeLog.record(offLimits);
+          }
+        }
+        this.listener.tilesMarkedOffLimits(cnt);
+        rndTerritory = getRandomTerritoryNotLandLocked();
+        continue;
+      }
+
+      int max = this.maxTerritorySize;
+      if (cnt <= this.maxTerritorySize) {
+        max = cnt;
+      }
+      generateTerritory(tile, this.minTerritorySize, max);
+      rndTerritory = getRandomTerritoryNotLandLocked();
+    }
+
+    if (this.changeLog != null && !this.changeLog.isEmpty()) {
+      this.listener.snapshot(this.changeLog.drain(this.territoriesPlaced));
+    }
+  }
+
+  /**
+   * Give back a column that was a stripe border and is water again.
+   * Territories next to it get it as coast. Stripes also marked water pockets
+   * off limits when the border cut them below the minimum size; with the
+   * border gone those pockets may have room again, so every off limits body
+   * of water touching the column is cleared for this generator to check
+   * again, and territories next to it get it as coast too.
+   * 
+   * <p>
+   * Call this after adding the territories, so ones that were land locked
+   * can become coastal again.
+   * 
+   * @param x the column
+   */
+  void reopenBorder(final int x) {
+    for (int y = 0; y < this.gameMap.getHeight(); y++) {
+      final MapTile tile = this.gameMap.getMapTileUnchecked(x, y);
+      reopenCoastAround(tile);
+      reopenOffLimitsBody(tile);
+      for (Direction dir : Direction.values()) {
+        final MapTile neighbor = tile.get(dir);
+        if (neighbor != null) {
+          reopenOffLimitsBody(neighbor);
+        }
+      }
+    }
+  }
+
+  /**
+   * Clear off limits on a tile and on all the off limits water joined to it,
+   * if it is off limits water itself.
+   * 
+   * @param tile the tile
+   */
+  private void reopenOffLimitsBody(final MapTile tile) {
+    if (!IS_OFF_LIMITS_WATER.test(tile)) {
+      return;
+    }
+    final int count = this.floodFill.fill(tile, Integer.MAX_VALUE, IS_OFF_LIMITS_WATER);
+    for (int i = 0; i < count; i++) {
+      final MapTile water = this.floodFill.getVisitedTile(i);
+      water.setOffLimits(false);
+      if (this.changeLog != null) {
+        this.changeLog.record(water);
+      }
+    }
+    for (int i = 0; i < count; i++) {
+      reopenCoastAround(this.floodFill.getVisitedTile(i));
+    }
+  }
+
+  /**
+   * Give a water tile as coast to every Territory next to it, putting any
+   * that were land locked back among the coastal territories.
+   * 
+   * @param water the water tile
+   */
+  private void reopenCoastAround(final MapTile water) {
+    for (Direction dir : Direction.values()) {
+      final MapTile neighbor = water.get(dir);
+      if (neighbor == null || neighbor.getTerritory() == null) {
+        continue;
+      }
+      final Territory territory = neighbor.getTerritory();
+      final boolean wasLandLocked = territory.isLandLocked();
+      territory.reopenCoast(water);
+      if (wasLandLocked) {
+        this.coastalTerritories.add(territory);
+      }
+    }
+  }
+
+  /**
+   * Add a Territory to this generator.
+   * 
+   * @param territory the Territory
+   */
+  void addTerritory(final Territory territory) {
+    this.territories.add(territory);
+    if (!territory.isLandLocked()) {
+      this.coastalTerritories.add(territory);
+    }
+    // Also listen to land locked ones, in case they get coast back.
+    territory.setLandLockedListener(t -> {
+      this.coastalTerritories.remove(t);
+      this.listener.territoryLandLocked();
+    });
+  }
+
+  /**
+   * Determine a random size to make a Territory.
+   * 
+   * @param minSize minimum size to make a Territory
+   * @param maxSize maximum size to make a Territory
+   * @return A size to make the Territory.
+   */
+  private int getRandomTargetSize(final int minSize, final int maxSize) {
+    if (minSize > maxSize) {
+      throw new IllegalArgumentException("Minimum Territory size must be less than or equal to maximum size.");
+    }
+
+    int targetSize;
+    if (minSize == maxSize) {
+      targetSize = minSize;
+    } else {
+      targetSize = minSize + this.rng.nextInt(maxSize - minSize + 1);
+    }
+
+    return targetSize;
+  }
+
+  /**
+   * Generate a new Territory using the water tile given as a starting point. It
+   * is assumed that there is enough space to construct the territory.
+   * 
+   * @param tile    Water tile to start making territory
+   * @param minSize Minimum size to make this territory
+   * @param maxSize Maximum size to make this territory
+   */
+  private void generateTerritory(final MapTile tile, final int minSize, final int maxSize) {
+    // TODO: Move space checking into here.
+    // TODO: Maybe determine size outside of this method.
+    Territory newTerritory = null;
+    int attempts = this.control.getBuildAttempts();
+    while (newTerritory == null && attempts-- > 0) {
+      MapTile startTile = tile;
+      // Only give the tiles up for good when this was the last try.
+      newTerritory = new Territory.Builder().setWorld(this.gameMap).setStartTile(startTile).setMaxSize(maxSize)
+          .setMinSize(minSize).setFloodFill(this.floodFill)
+          .setWaterComponents(this.waterComponents).setRandom(this.rng).setListener(this.listener)
+          .setChangeLog(this.changeLog).setControl(this.control).setOffLimitsOnFailure(attempts == 0).build();
+    }
+
+    if (newTerritory != null) {
+      placeTerritory(newTerritory, this.control.getBuildAttempts() - attempts);
+    }
+  }
+
+  /**
+   * Add a Territory this generator grew, tell the listener and take a
+   * snapshot if one is due.
+   * 
+   * @param territory the new Territory
+   * @param attempts  build attempts it took
+   */
+  private void placeTerritory(final Territory territory, final int attempts) {
+    this.listener.territoryPlaced(territory.getTileCount(), attempts);
+    addTerritory(territory);
+    this.territoriesPlaced++;
+    if (this.changeLog != null && this.territoriesPlaced % this.snapshotInterval == 0) {
+      this.listener.snapshot(this.changeLog.drain(this.territoriesPlaced));
+    }
+  }
+
+  /**
+   * Get a random Territory that is not land locked.
+   * 
+   * @return a Territory.
+   */
+  private Territory getRandomTerritoryNotLandLocked() {
+    // TODO: When adding islands to the game, will need to modify this.
+    Territory result = null;
+    if (!this.coastalTerritories.isEmpty()) {
+      result = this.coastalTerritories.get(this.rng.nextInt(this.coastalTerritories.size()));
+    }
+
+    return result;
+  }
+}
@@ -0,0 +1,191 @@
+package com.spamalot.dolt.map;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import com.spamalot.dolt.world.DoltWorld;
+import java.util.Arrays;
+
+/**
+ * Which territories border which, and how long each shared border is.
+ *
+ * <p>
+ * Stored in compressed sparse row form: the neighbors of territory {@code t}
+ * are entries {@code offsets[t]} to {@code offsets[t + 1] - 1} of
+ * {@code neighbors}, sorted by id, and {@code borderLengths} holds the number
+ * of tile edges shared with each. Queries never allocate.
+ *
+ * @author gej
+ *
+ */
+public final class TerritoryGraph {
+  /** Where each territory's neighbors start; one extra entry at the end. */
+  private final int[] offsets;
+
+  /** Neighbor ids, grouped by territory. */
+  private final int[] neighbors;
+
+  /** Shared border length with each neighbor. */
+  private final int[] borderLengths;
+
+  private TerritoryGraph(final int[] offsets, final int[] neighbors, final int[] borderLengths) {
+    this.offsets = offsets;
+    this.neighbors = neighbors;
+    this.borderLengths = borderLengths;
+  }
+
+  /**
+   * Build the graph in one pass over the World. Every tile is compared with
+   * the tile to its right and the tile below it; each pair of different
+   * territories meeting there is one unit of shared border.
+   *
+   * @param world          the World
+   * @param territoryCount number of territories; tile territory ids must be
+   *                       below this
+   * @return the graph
+   */
+  static TerritoryGraph build(final DoltWorld<MapTile> world, final int territoryCount) {
+    final int width = world.getWidth();
+    final int height = world.getHeight();
+
+    // Each border edge as (lower id << 32 | higher id).
+    long[] edges = new long[Math.max(16, territoryCount * 4)];
+    int edgeCount = 0;
+    for (int y = 0; y < height; y++) {
+      for (int x = 0; x < width; x++) {
+        final int here = world.getMapTileUnchecked(x, y).getTerritoryId();
+        if (here < 0) {
+          continue;
+        }
+        if (x + 1 < width) {
+          final long edge = edgeKey(here, world.getMapTileUnchecked(x + 1, y).getTerritoryId());
+          if (edge >= 0) {
+            if (edgeCount == edges.length) {
+              edges = Arrays.copyOf(edges, edgeCount * 2);
+            }
+            edges[edgeCount++] = edge;
+          }
+        }
+        if (y + 1 < height) {
+          final long edge = edgeKey(here, world.getMapTileUnchecked(x, y + 1).getTerritoryId());
+          if (edge >= 0) {
+            if (edgeCount == edges.length) {
+              edges = Arrays.copyOf(edges, edgeCount * 2);
+            }
+            edges[edgeCount++] = edge;
+          }
+        }
+      }
+    }
+    Arrays.sort(edges, 0, edgeCount);
+
+    // Collapse runs of the same pair into one edge with a border length.
+    final int[] degree = new int[territoryCount];
+    final int[] lengths = new int[edgeCount];
+    int pairCount = 0;
+    for (int i = 0; i < edgeCount; i++) {
+      if (pairCount > 0 && edges[i] == edges[pairCount - 1]) {
+        lengths[pairCount - 1]++;
+      } else {
+        edges[pairCount] = edges[i];
+        lengths[pairCount++] = 1;
+        degree[(int) (edges[i] >>> 32)]++;
+        degree[(int) edges[i]]++;
+      }
+    }
+
+    final int[] offsets = new int[territoryCount + 1];
+    for (int t = 0; t < territoryCount; t++) {
+      offsets[t + 1] = offsets[t] + degree[t];
+    }
+    final int[] fill = Arrays.copyOf(offsets, territoryCount);
+    final int[] neighbors = new int[offsets[territoryCount]];
+    final int[] borderLengths = new int[neighbors.length];
+    // Pairs are sorted by lower id, then higher id, so every row comes out
+    // sorted.
+    for (int pair = 0; pair < pairCount; pair++) {
+      final int low = (int) (edges[pair] >>> 32);
+      final int high = (int) edges[pair];
+      neighbors[fill[low]] = high;
+      borderLengths[fill[low]++] = lengths[pair];
+      neighbors[fill[high]] = low;
+      borderLengths[fill[high]++] = lengths[pair];
+    }
+
+    return new TerritoryGraph(offsets, neighbors, borderLengths);
+  }
+
+  /**
+   * Get the number of territories in the graph.
+   *
+   * @return the number of territories
+   */
+  public int getTerritoryCount() {
+    return this.offsets.length - 1;
+  }
+
+  /**
+   * Get the number of neighbors of a territory.
+   *
+   * @param territory territory id
+   * @return the number of neighbors
+   */
+  public int getNeighborCount(final int territory) {
+    checkElementIndex(territory, getTerritoryCount());
+    return this.offsets[territory + 1] - this.offsets[territory];
+  }
+
+  /**
+   * Get a neighbor of a territory. Neighbors are sorted by id.
+   *
+   * @param territory territory id
+   * @param n         which neighbor
+   * @return the neighbor's id
+   */
+  public int getNeighbor(final int territory, final int n) {
+    checkElementIndex(n, getNeighborCount(territory));
+    return this.neighbors[this.offsets[territory] + n];
+  }
+
+  /**
+   * Get the length of the border shared with a neighbor.
+   *
+   * @param territory territory id
+   * @param n         which neighbor
+   * @return the number of tile edges the two territories share
+   */
+  public int getBorderLength(final int territory, final int n) {
+    checkElementIndex(n, getNeighborCount(territory));
+    return this.borderLengths[this.offsets[territory] + n];
+  }
+
+  /**
+   * Get the length of the border between two territories.
+   *
+   * @param territory one territory id
+   * @param other     the other territory id
+   * @return the number of tile edges they share, 0 if they are not neighbors
+   */
+  public int getSharedBorder(final int territory, final int other) {
+    checkElementIndex(territory, getTerritoryCount());
+    final int n = Arrays.binarySearch(this.neighbors, this.offsets[territory], this.offsets[territory + 1], other);
+    return n < 0 ? 0 : this.borderLengths[n];
+  }
+
+  /**
+   * Check if two territories share a border.
+   *
+   * @param territory one territory id
+   * @param other     the other territory id
+   * @return true if they are neighbors
+   */
+  public boolean areNeighbors(final int territory, final int other) {
+    return getSharedBorder(territory, other) > 0;
+  }
+
+  private static long edgeKey(final int here, final int there) {
+    if (there < 0 || there == here) {
+      return -1;
+    }
+    return (long) Math.min(here, there) << 32 | Math.max(here, there);
+  }
+}
@@ -0,0 +1,315 @@
+package com.spamalot.dolt.map;
+
+import static com.google.common.base.Preconditions.checkElementIndex;
+
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * Where the territories of a Map are: each one's bounding box, centroid and
+ * tile count, and a uniform grid of {@value #CELL_SIZE} by
+ * {@value #CELL_SIZE} tile cells over them.
+ *
+ * <p>
+ * The grid is stored twice in compressed sparse row form: every cell lists
+ * the territories whose bounding box overlaps it, for area queries, and the
+ * territories whose centroid falls in it, for nearest queries. Queries never
+ * allocate and an index never changes, so it is safe to share between
+ * threads.
+ *
+ * @author gej
+ *
+ */
+public final class TerritoryIndex {
+  /** Side of a grid cell in tiles. */
+  public static final int CELL_SIZE = 32;
+
+  /** Number of cells across the Map. */
+  private final int cellsAcross;
+
+  /** Number of cells down the Map. */
+  private final int cellsDown;
+
+  /** Bounding boxes by territory id. */
+  private final int[] minX;
+
+  private final int[] minY;
+
+  private final int[] maxX;
+
+  private final int[] maxY;
+
+  /** Centroids by territory id. */
+  private final double[] centroidX;
+
+  private final double[] centroidY;
+
+  /** Tile counts by territory id. */
+  private final int[] tileCounts;
+
+  /** Where each cell's overlapping territories start; one extra at the end. */
+  private final int[] coverOffsets;
+
+  /** Territories overlapping each cell, grouped by cell. */
+  private final int[] coverIds;
+
+  /** Where each cell's centroids start; one extra at the end. */
+  private final int[] centroidOffsets;
+
+  /** Territories with their centroid in each cell, grouped by cell. */
+  private final int[] centroidIds;
+
+  /**
+   * Index territories. Their ids must be their positions in the list.
+   *
+   * @param territories the territories
+   * @param width       width of the Map
+   * @param height      height of the Map
+   */
+  TerritoryIndex(final List<Territory> territories, final int width, final int height) {
+    final int count = territories.size();
+    this.cellsAcross = Math.max(1, (width + CELL_SIZE - 1) / CELL_SIZE);
+    this.cellsDown = Math.max(1, (height + CELL_SIZE - 1) / CELL_SIZE);
+    this.minX = new int[count];
+    this.minY = new int[count];
+    this.maxX = new int[count];
+    this.maxY = new int[count];
+    this.centroidX = new double[count];
+    this.centroidY = new double[count];
+    this.tileCounts = new int[count];
+    for (int t = 0; t < count; t++) {
+      final Territory territory = territories.get(t);
+      this.minX[t] = territory.getMinX();
+      this.minY[t] = territory.getMinY();
+      this.maxX[t] = territory.getMaxX();
+      this.maxY[t] = territory.getMaxY();
+      this.centroidX[t] = territory.getCentroidX();
+      this.centroidY[t] = territory.getCentroidY();
+      this.tileCounts[t] = territory.getTileCount();
+    }
+
+    final int cells = this.cellsAcross * this.cellsDown;
+    this.coverOffsets = new int[cells + 1];
+    this.centroidOffsets = new int[cells + 1];
+    for (int t = 0; t < count; t++) {
+      if (this.tileCounts[t] > 0) {
+        forEachCoveredCell(t, cell -> this.coverOffsets[cell + 1]++);
+        this.centroidOffsets[centroidCell(t) + 1]++;
+      }
+    }
+    for (int c = 0; c < cells; c++) {
+      this.coverOffsets[c + 1] += this.coverOffsets[c];
+      this.centroidOffsets[c + 1] += this.centroidOffsets[c];
+    }
+
+    this.coverIds = new int[this.coverOffsets[cells]];
+    this.centroidIds = new int[this.centroidOffsets[cells]];
+    final int[] coverNext = this.coverOffsets.clone();
+    final int[] centroidNext = this.centroidOffsets.clone();
+    for (int t = 0; t < count; t++) {
+      if (this.tileCounts[t] > 0) {
+        final int id = t;
+        forEachCoveredCell(t, cell -> this.coverIds[coverNext[cell]++] = id);
+        this.centroidIds[centroidNext[centroidCell(t)]++] = t;
+      }
+    }
+  }
+
+  /** Visit every cell a territory's bounding box overlaps. */
+  private void forEachCoveredCell(final int t, final IntConsumer action) {
+    for (int cy = this.minY[t] / CELL_SIZE; cy <= this.maxY[t] / CELL_SIZE; cy++) {
+      for (int cx = this.minX[t] / CELL_SIZE; cx <= this.maxX[t] / CELL_SIZE; cx++) {
+        action.accept(cy * this.cellsAcross + cx);
+      }
+    }
+  }
+
+  /** The cell holding a territory's centroid. */
+  private int centroidCell(final int t) {
+    final int cx = Math.min(this.cellsAcross - 1, (int) (this.centroidX[t] / CELL_SIZE));
+    final int cy = Math.min(this.cellsDown - 1, (int) (this.centroidY[t] / CELL_SIZE));
+    return cy * this.cellsAcross + cx;
+  }
+
+  /**
+   * Get the number of territories indexed.
+   *
+   * @return the number of territories, including any left without tiles
+   */
+  public int getTerritoryCount() {
+    return this.tileCounts.length;
+  }
+
+  /**
+   * Get the number of tiles in a territory.
+   *
+   * @param id a territory id
+   * @return the number of tiles in that territory
+   */
+  public int getTileCount(final int id) {
+    checkElementIndex(id, this.tileCounts.length);
+    return this.tileCounts[id];
+  }
+
+  /**
+   * Get the left edge of a territory's bounding box.
+   *
+   * @param id a territory id
+   * @return the leftmost column of that territory
+   */
+  public int getMinX(final int id) {
+    checkElementIndex(id, this.minX.length);
+    return this.minX[id];
+  }
+
+  /**
+   * Get the top edge of a territory's bounding box.
+   *
+   * @param id a territory id
+   * @return the topmost row of that territory
+   */
+  public int getMinY(final int id) {
+    checkElementIndex(id, this.minY.length);
+    return this.minY[id];
+  }
+
+  /**
+   * Get the right edge of a territory's bounding box.
+   *
+   * @param id a territory id
+   * @return the rightmost column of that territory
+   */
+  public int getMaxX(final int id) {
+    checkElementIndex(id, this.maxX.length);
+    return this.maxX[id];
+  }
+
+  /**
+   * Get the bottom edge of a territory's bounding box.
+   *
+   * @param id a territory id
+   * @return the bottom row of that territory
+   */
+  public int getMaxY(final int id) {
+    checkElementIndex(id, this.maxY.length);
+    return this.maxY[id];
+  }
+
+  /**
+   * Get the horizontal coordinate of a territory's centroid.
+   *
+   * @param id a territory id
+   * @return the mean column of that territory's tiles
+   */
+  public double getCentroidX(final int id) {
+    checkElementIndex(id, this.centroidX.length);
+    return this.centroidX[id];
+  }
+
+  /**
+   * Get the vertical coordinate of a territory's centroid.
+   *
+   * @param id a territory id
+   * @return the mean row of that territory's tiles
+   */
+  public double getCentroidY(final int id) {
+    checkElementIndex(id, this.centroidY.length);
+    return this.centroidY[id];
+  }
+
+  /**
+   * Find the territories whose bounding box overlaps a rectangle, for
+   * viewport culling. Each is reported once, in no particular order.
+   *
+   * @param x      left column of the rectangle
+   * @param y      top row of the rectangle
+   * @param width  width of the rectangle
+   * @param height height of the rectangle
+   * @param buffer where to write territory ids; as many as fit are written
+   * @return the number of territories overlapping the rectangle
+   */
+  public int fillTerritoriesIntersecting(final int x, final int y, final int width, final int height,
+      final int[] buffer) {
+    if (width <= 0 || height <= 0) {
+      return 0;
+    }
+    final int left = Math.max(0, x);
+    final int top = Math.max(0, y);
+    final int right = (int) Math.min(Integer.MAX_VALUE, (long) x + width - 1);
+    final int bottom = (int) Math.min(Integer.MAX_VALUE, (long) y + height - 1);
+    if (right < 0 || bottom < 0) {
+      return 0;
+    }
+    final int cellRight = Math.min(this.cellsAcross - 1, right / CELL_SIZE);
+    final int cellBottom = Math.min(this.cellsDown - 1, bottom / CELL_SIZE);
+    int found = 0;
+    for (int cy = top / CELL_SIZE; cy <= cellBottom; cy++) {
+      for (int cx = left / CELL_SIZE; cx <= cellRight; cx++) {
+        final int cell = cy * this.cellsAcross + cx;
+        for (int k = this.coverOffsets[cell]; k < this.coverOffsets[cell + 1]; k++) {
+          final int t = this.coverIds[k];
+          if (this.maxX[t] < left || this.minX[t] > right || this.maxY[t] < top || this.minY[t] > bottom) {
+            continue;
+          }
+          // A territory spanning several cells is reported only from the cell
+          // holding the top left corner of its overlap with the rectangle.
+          if (Math.max(left, this.minX[t]) / CELL_SIZE != cx || Math.max(top, this.minY[t]) / CELL_SIZE != cy) {
+            continue;
+          }
+          if (found < buffer.length) {
+            buffer[found] = t;
+          }
+          found++;
+        }
+      }
+    }
+    return found;
+  }
+
+  /**
+   * Find the territory whose centroid is nearest a point. Rings of cells
+   * around the point are searched outwards until no nearer centroid can be
+   * left.
+   *
+   * @param x a column
+   * @param y a row
+   * @return the id of the nearest territory, or -1 if none has tiles
+   */
+  public int nearestTerritory(final int x, final int y) {
+    final int cx = Math.min(this.cellsAcross - 1, Math.max(0, x / CELL_SIZE));
+    final int cy = Math.min(this.cellsDown - 1, Math.max(0, y / CELL_SIZE));
+    final int maxRing = Math.max(Math.max(cx, this.cellsAcross - 1 - cx), Math.max(cy, this.cellsDown - 1 - cy));
+    int best = -1;
+    double bestDistance = Double.MAX_VALUE;
+    for (int ring = 0; ring <= maxRing; ring++) {
+      // Anything in this ring or beyond is at least (ring - 1) cells away.
+      final double reach = (double) Math.max(0, ring - 1) * CELL_SIZE;
+      if (best >= 0 && bestDistance <= reach * reach) {
+        break;
+      }
+      for (int ny = cy - ring; ny <= cy + ring; ny++) {
+        if (ny < 0 || ny >= this.cellsDown) {
+          continue;
+        }
+        final boolean edgeRow = ny == cy - ring || ny == cy + ring;
+        for (int nx = cx - ring; nx <= cx + ring; nx += edgeRow ? 1 : 2 * Math.max(1, ring)) {
+          if (nx < 0 || nx >= this.cellsAcross) {
+            continue;
+          }
+          final int cell = ny * this.cellsAcross + nx;
+          for (int k = this.centroidOffsets[cell]; k < this.centroidOffsets[cell + 1]; k++) {
+            final int t = this.centroidIds[k];
+            final double dx = this.centroidX[t] - x;
+            final double dy = this.centroidY[t] - y;
+            final double distance = dx * dx + dy * dy;
+            if (distance < bestDistance || distance == bestDistance && t < best) {
+              best = t;
+              bestDistance = distance;
+            }
+          }
+        }
+      }
+    }
+    return best;
+  }
+}
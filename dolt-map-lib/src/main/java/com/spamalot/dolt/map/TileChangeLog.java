@@ -0,0 +1,79 @@
+package com.spamalot.dolt.map;
+
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.WorldTileType;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Collect the tiles a generator changes between snapshots. Each tile is
+ * recorded once no matter how often it changes.
+ *
+ * @author gej
+ *
+ */
+final class TileChangeLog {
+  /** The World being generated. */
+  private final DoltWorld<MapTile> world;
+
+  /** Tiles recorded since the last snapshot. */
+  private final BitSet recorded = new BitSet();
+
+  /** World indices of the recorded tiles. */
+  private int[] tiles = new int[64];
+
+  /** Number of recorded tiles. */
+  private int count;
+
+  TileChangeLog(final DoltWorld<MapTile> world) {
+    this.world = world;
+  }
+
+  /**
+   * Record that a tile changed.
+   *
+   * @param tile the tile
+   */
+  void record(final MapTile tile) {
+    final int index = tile.getY() * this.world.getWidth() + tile.getX();
+    if (!this.recorded.get(index)) {
+      this.recorded.set(index);
+      if (this.count == this.tiles.length) {
+        this.tiles = Arrays.copyOf(this.tiles, this.count * 2);
+      }
+      this.tiles[this.count++] = index;
+    }
+  }
+
+  /**
+   * Check if nothing was recorded since the last snapshot.
+   *
+   * @return true if nothing changed
+   */
+  boolean isEmpty() {
+    return this.count == 0;
+  }
+
+  /**
+   * Copy the recorded tiles into a snapshot and start over.
+   *
+   * @param territoriesPlaced territories placed so far
+   * @return the snapshot
+   */
+  GenerationSnapshot drain(final int territoriesPlaced) {
+    final int[] changed = Arrays.copyOf(this.tiles, this.count);
+    final byte[] flags = new byte[this.count];
+    for (int n = 0; n < this.count; n++) {
+      MapTile tile = this.world.getMapTile(changed[n]);
+      if (tile.getType() == WorldTileType.LAND) {
+        flags[n] |= GenerationSnapshot.LAND;
+      }
+      if (tile.isOffLimits()) {
+        flags[n] |= GenerationSnapshot.OFF_LIMITS;
+      }
+      this.recorded.clear(changed[n]);
+    }
+    this.count = 0;
+    return new GenerationSnapshot(this.world, territoriesPlaced, changed, flags);
+  }
+}
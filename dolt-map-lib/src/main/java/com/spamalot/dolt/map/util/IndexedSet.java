@@ -0,0 +1,116 @@
+package com.spamalot.dolt.map.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A set that also keeps its elements in a dense list, so it supports O(1)
+ * add, remove, contains and access by position. Removal swaps the last
+ * element into the hole, so positions are not stable across removals.
+ *
+ * @author gej
+ *
+ * @param <E> Element type
+ */
+public final class IndexedSet<E> {
+  /** The elements, densely packed. */
+  private final List<E> elements = new ArrayList<>();
+
+  /** Position of each element in {@link #elements}. */
+  private final Map<E, Integer> positions = new HashMap<>();
+
+  /**
+   * Add an element.
+   *
+   * @param element the element to add
+   * @return true if the element was not already present
+   */
+  public boolean add(final E element) {
+    if (this.positions.containsKey(element)) {
+      return false;
+    }
+    this.positions.put(element, this.elements.size());
+    this.elements.add(element);
+    return true;
+  }
+
+  /**
+   * Remove an element.
+   *
+   * @param element the element to remove
+   * @return true if the element was present
+   */
+  public boolean remove(final E element) {
+    Integer position = this.positions.get(element);
+    if (position == null) {
+      return false;
+    }
+    removeAt(position);
+    return true;
+  }
+
+  /**
+   * Remove the element at a position by swapping the last element into it.
+   *
+   * @param position the position
+   * @return the removed element
+   */
+  public E removeAt(final int position) {
+    final E removed = this.elements.get(position);
+    final E last = this.elements.remove(this.elements.size() - 1);
+    if (position < this.elements.size()) {
+      this.elements.set(position, last);
+      this.positions.put(last, position);
+    }
+    this.positions.remove(removed);
+    return removed;
+  }
+
+  /**
+   * Get the element at a position.
+   *
+   * @param position the position
+   * @return the element
+   */
+  public E get(final int position) {
+    return this.elements.get(position);
+  }
+
+  /**
+   * Check if an element is present.
+   *
+   * @param element the element
+   * @return true if present
+   */
+  public boolean contains(final E element) {
+    return this.positions.containsKey(element);
+  }
+
+  /**
+   * Get the number of elements.
+   *
+   * @return the number of elements
+   */
+  public int size() {
+    return this.elements.size();
+  }
+
+  /**
+   * Check if there are no elements.
+   *
+   * @return true if empty
+   */
+  public boolean isEmpty() {
+    return this.elements.isEmpty();
+  }
+
+  /**
+   * Remove all elements.
+   */
+  public void clear() {
+    this.elements.clear();
+    this.positions.clear();
+  }
+}
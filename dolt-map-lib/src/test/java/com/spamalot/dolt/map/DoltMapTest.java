@@ -0,0 +1,320 @@
+package com.spamalot.dolt.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.TileLayout;
+import com.spamalot.dolt.world.WorldTileType;
+import com.spamalot.dolt.world.grid.Direction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class DoltMapTest {
+
+  /**
+   * Test method for {@link com.spamalot.dolt.map.DoltMap#DoltMap(int, int, int, long)}.
+   */
+  @Test
+  public void testSameSeedSameMap() {
+    DoltMap first = new DoltMap(40, 20, 10, 42L);
+    DoltMap second = new DoltMap(40, 20, 10, 42L);
+    assertEquals(first.toString(), second.toString());
+    assertEquals(42L, second.getSeed());
+    assertEquals(first.toString(), new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10).setSeed(42L)
+        .setLayout(TileLayout.Z_ORDER).build().toString());
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.map.DoltMap.Builder#setRegions(int)}.
+   */
+  @Test
+  public void testParallelSameSeedSameMap() {
+    DoltMap.Builder builder = new DoltMap.Builder().setWidth(240).setHeight(60).setTerritories(40).setSeed(7L)
+        .setRegions(4);
+    DoltMap map = builder.build();
+    assertEquals(map.toString(), builder.build().toString());
+    assertEquals(40, map.getTerritories().size());
+
+    // The stripe borders went back to water, and no land was left without a
+    // territory, at the borders or anywhere else.
+    DoltWorld<MapTile> world = map.getWorld();
+    for (int y = 0; y < world.getHeight(); y++) {
+      for (int x = 0; x < world.getWidth(); x++) {
+        MapTile tile = world.getMapTile(x, y);
+        assertEquals(tile.getType() == WorldTileType.LAND, tile.getTerritory() != null);
+      }
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.map.DoltMap.Builder#buildAsync(java.util.concurrent.Executor)}.
+   *
+   * @throws Exception if generation fails
+   */
+  @Test
+  public void testBuildAsync() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      DoltMap.Builder builder = new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10).setSeed(42L);
+      assertEquals(builder.build().toString(), builder.buildAsync(executor).get().toString());
+
+      builder.setTimeBudget(1, TimeUnit.NANOSECONDS);
+      try {
+        builder.buildAsync(executor).get();
+        fail("Generation should have run out of time.");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof TimeoutException);
+      }
+
+      DoltMap.Builder capped = new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10).setSeed(42L)
+          .setAttemptBudget(3);
+      try {
+        capped.buildAsync(executor).get();
+        fail("Generation should have run out of attempts.");
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof TimeoutException);
+      }
+      try {
+        capped.build();
+        fail("Generation should have run out of attempts.");
+      } catch (CancellationException e) {
+        // Expected.
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Test that cancelling the future stops generation at its next checkpoint.
+   *
+   * @throws Exception if the test is interrupted
+   */
+  @Test
+  public void testCancelStopsGeneration() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final CountDownLatch placed = new CountDownLatch(1);
+      final CountDownLatch release = new CountDownLatch(1);
+      final AtomicInteger territoriesPlaced = new AtomicInteger();
+      final List<String> phases = Collections.synchronizedList(new ArrayList<>());
+      GenerationListener listener = new GenerationListener() {
+        @Override
+        public void territoryPlaced(final int tiles, final int attempts) {
+          territoriesPlaced.incrementAndGet();
+          placed.countDown();
+          try {
+            release.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        }
+
+        @Override
+        public void phaseCompleted(final String phase, final long nanos) {
+          phases.add(phase);
+        }
+      };
+
+      CompletableFuture<DoltMap> future = new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10)
+          .setSeed(42L).setListener(listener).buildAsync(executor);
+      assertTrue(placed.await(10, TimeUnit.SECONDS));
+      assertTrue(future.cancel(true));
+      release.countDown();
+      // The executor has one thread, so this runs once generation has returned.
+      executor.submit(() -> {
+      }).get(10, TimeUnit.SECONDS);
+
+      assertTrue(future.isCancelled());
+      assertEquals(1, territoriesPlaced.get());
+      assertFalse(phases.contains("territories"));
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.map.DoltMap#getTerritoryGraph()}.
+   */
+  @Test
+  public void testTerritoryGraphMatchesGridScan() {
+    DoltMap map = new DoltMap(100, 70, 30, 42L);
+    DoltWorld<MapTile> world = map.getWorld();
+    int count = map.getTerritories().size();
+    // Every tile edge between two territories, counted from each side.
+    int[][] shared = new int[count][count];
+    for (int index = 0; index < world.getTileCount(); index++) {
+      MapTile tile = world.getMapTile(index);
+      for (Direction dir : Direction.values()) {
+        MapTile neighbor = tile.get(dir);
+        if (tile.getTerritory() != null && neighbor != null && neighbor.getTerritory() != null
+            && neighbor.getTerritory() != tile.getTerritory()) {
+          shared[tile.getTerritory().getId()][neighbor.getTerritory().getId()]++;
+        }
+      }
+    }
+
+    TerritoryGraph graph = map.getTerritoryGraph();
+    assertEquals(count, graph.getTerritoryCount());
+    for (int t = 0; t < count; t++) {
+      int neighbors = 0;
+      for (int other = 0; other < count; other++) {
+        assertEquals(shared[t][other], graph.getSharedBorder(t, other));
+        assertEquals(shared[t][other] > 0, graph.areNeighbors(t, other));
+        if (shared[t][other] > 0) {
+          neighbors++;
+        }
+      }
+      assertEquals(neighbors, graph.getNeighborCount(t));
+    }
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.map.DoltMap#getTerritoryIndex()}.
+   */
+  @Test
+  public void testTerritoryIndexMatchesBruteForce() {
+    DoltMap map = new DoltMap(100, 70, 30, 42L);
+    TerritoryIndex index = map.getTerritoryIndex();
+    int count = map.getTerritories().size();
+    assertEquals(count, index.getTerritoryCount());
+    for (Territory territory : map.getTerritories()) {
+      int id = territory.getId();
+      int minX = Integer.MAX_VALUE;
+      int maxY = -1;
+      for (int n = 0; n < territory.getTileCount(); n++) {
+        minX = Math.min(minX, territory.getTile(n).getX());
+        maxY = Math.max(maxY, territory.getTile(n).getY());
+      }
+      assertEquals(territory.getTileCount(), index.getTileCount(id));
+      assertEquals(minX, index.getMinX(id));
+      assertEquals(maxY, index.getMaxY(id));
+    }
+
+    int[] buffer = new int[count];
+    int[][] views = { { 0, 0, 100, 70 }, { 20, 10, 33, 40 }, { -5, 60, 40, 40 }, { 90, 0, 1, 1 },
+        { 50, 30, Integer.MAX_VALUE, Integer.MAX_VALUE }, { Integer.MIN_VALUE, 0, Integer.MAX_VALUE, 70 } };
+    for (int[] view : views) {
+      int expected = 0;
+      for (int t = 0; t < count; t++) {
+        if (index.getTileCount(t) > 0 && index.getMaxX(t) >= view[0] && index.getMinX(t) < (long) view[0] + view[2]
+            && index.getMaxY(t) >= view[1] && index.getMinY(t) < (long) view[1] + view[3]) {
+          expected++;
+        }
+      }
+      int found = index.fillTerritoriesIntersecting(view[0], view[1], view[2], view[3], buffer);
+      assertEquals(expected, found);
+      assertEquals(found, Arrays.stream(buffer, 0, found).distinct().count());
+    }
+
+    for (int y = 0; y < 70; y += 7) {
+      for (int x = 0; x < 100; x += 9) {
+        int best = -1;
+        double bestDistance = Double.MAX_VALUE;
+        for (int t = 0; t < count; t++) {
+          double dx = index.getCentroidX(t) - x;
+          double dy = index.getCentroidY(t) - y;
+          if (index.getTileCount(t) > 0 && dx * dx + dy * dy < bestDistance) {
+            best = t;
+            bestDistance = dx * dx + dy * dy;
+          }
+        }
+        assertEquals(best, index.nearestTerritory(x, y));
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.map.DoltMap.Builder#setSnapshotInterval(int)}.
+   */
+  @Test
+  public void testSnapshotsReplayToFinalMap() {
+    List<GenerationSnapshot> snapshots = new ArrayList<>();
+    DoltMap map = new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10).setSeed(42L)
+        .setSnapshotInterval(3).setListener(new GenerationListener() {
+          @Override
+          public void snapshot(final GenerationSnapshot snapshot) {
+            snapshots.add(snapshot);
+          }
+        }).build();
+
+    int placed = map.getTerritories().size();
+    assertEquals(placed / 3 + (placed % 3 == 0 ? 0 : 1), snapshots.size());
+    for (int n = 0; n < snapshots.size() - 1; n++) {
+      assertEquals(3 * (n + 1), snapshots.get(n).getTerritoriesPlaced());
+    }
+    assertEquals(placed, snapshots.get(snapshots.size() - 1).getTerritoriesPlaced());
+    assertReplaysTo(map, snapshots);
+
+    // The first territory is placed outside the normal loop; it counts too.
+    snapshots.clear();
+    new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10).setSeed(42L).setSnapshotInterval(1)
+        .setListener(new GenerationListener() {
+          @Override
+          public void snapshot(final GenerationSnapshot snapshot) {
+            snapshots.add(snapshot);
+          }
+        }).build();
+    assertTrue(snapshots.size() >= placed);
+    for (int n = 0; n < snapshots.size(); n++) {
+      assertEquals(Math.min(n + 1, placed), snapshots.get(n).getTerritoriesPlaced());
+    }
+
+    List<GenerationSnapshot> regionSnapshots = Collections.synchronizedList(new ArrayList<>());
+    DoltMap parallel = new DoltMap.Builder().setWidth(240).setHeight(60).setTerritories(40).setSeed(7L)
+        .setRegions(4).setSnapshotInterval(5).setListener(new GenerationListener() {
+          @Override
+          public void snapshot(final GenerationSnapshot snapshot) {
+            regionSnapshots.add(snapshot);
+          }
+        }).build();
+    assertReplaysTo(parallel, regionSnapshots);
+    // Each stripe counts its own territories, at most its quota of 10.
+    for (GenerationSnapshot snapshot : regionSnapshots) {
+      assertTrue(snapshot.getTerritoriesPlaced() <= 10);
+    }
+  }
+
+  /**
+   * Apply snapshots in order to an all water grid and check that it ends up
+   * like the Map.
+   */
+  private static void assertReplaysTo(final DoltMap map, final List<GenerationSnapshot> snapshots) {
+    DoltWorld<MapTile> world = map.getWorld();
+    boolean[] land = new boolean[world.getTileCount()];
+    boolean[] offLimits = new boolean[world.getTileCount()];
+    for (GenerationSnapshot snapshot : snapshots) {
+      for (int n = 0; n < snapshot.getChangedTileCount(); n++) {
+        int index = snapshot.getChangedTileIndex(n);
+        assertEquals(index, snapshot.getChangedTileY(n) * world.getWidth() + snapshot.getChangedTileX(n));
+        land[index] = snapshot.getChangedTileType(n) == WorldTileType.LAND;
+        offLimits[index] = snapshot.isChangedTileOffLimits(n);
+      }
+    }
+    for (int index = 0; index < land.length; index++) {
+      MapTile tile = world.getMapTile(index);
+      assertEquals(tile.getType() == WorldTileType.LAND, land[index]);
+      assertEquals(tile.isOffLimits(), offLimits[index]);
+    }
+  }
+}
@@ -0,0 +1,74 @@
+package com.spamalot.dolt.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class GenerationMetricsTest {
+
+  /**
+   * Test that generating a seeded Map adds up the counters and times every
+   * phase, and that counters keep adding up across Maps until reset.
+   */
+  @Test
+  public void testCountersAndPhases() {
+    GenerationMetrics metrics = new GenerationMetrics();
+    DoltMap map = new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10).setSeed(42L)
+        .setListener(metrics).build();
+
+    int tiles = 0;
+    for (Territory territory : map.getTerritories()) {
+      tiles += territory.getTileCount();
+    }
+    assertEquals(map.getTerritories().size(), metrics.getTerritoriesPlaced());
+    assertEquals(tiles, metrics.getTerritoryTiles());
+    assertTrue(metrics.getBuildAttempts() >= metrics.getTerritoriesPlaced());
+    assertTrue(metrics.getLandLockedTransitions() <= metrics.getTerritoriesPlaced());
+    assertTrue(metrics.getFloodFills() > 0);
+    assertTrue(metrics.getFloodFillTilesVisited() >= metrics.getFloodFills());
+
+    Map<String, Long> phases = metrics.getPhaseNanos();
+    assertEquals(new HashSet<>(Arrays.asList("world", "territories", "neighbors")), phases.keySet());
+    for (long nanos : phases.values()) {
+      assertTrue(nanos >= 0);
+    }
+
+    long placed = metrics.getTerritoriesPlaced();
+    new DoltMap.Builder().setWidth(40).setHeight(20).setTerritories(10).setSeed(42L).setListener(metrics).build();
+    assertEquals(2 * placed, metrics.getTerritoriesPlaced());
+    assertEquals(2 * tiles, metrics.getTerritoryTiles());
+
+    metrics.reset();
+    assertEquals(0, metrics.getTerritoriesPlaced());
+    assertEquals(0, metrics.getFloodFills());
+    assertTrue(metrics.getPhaseNanos().isEmpty());
+  }
+
+  /**
+   * Test that the counters can be read through JMX.
+   *
+   * @throws Exception if registration fails
+   */
+  @Test
+  public void testJmxBridge() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    GenerationMetrics metrics = new GenerationMetrics();
+    metrics.register(server, "com.spamalot.dolt:type=GenerationMetrics");
+    metrics.territoryPlaced(12, 3);
+
+    ObjectName name = new ObjectName("com.spamalot.dolt:type=GenerationMetrics");
+    assertEquals(1L, server.getAttribute(name, "TerritoriesPlaced"));
+    assertEquals(3L, server.getAttribute(name, "BuildAttempts"));
+  }
+}
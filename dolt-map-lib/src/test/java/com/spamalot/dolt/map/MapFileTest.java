@@ -0,0 +1,52 @@
+package com.spamalot.dolt.map;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author gej
+ *
+ */
+public class MapFileTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.map.MapFile#write(DoltMap, java.nio.file.Path)}.
+   *
+   * @throws IOException if the file cannot be written
+   */
+  @Test
+  public void testRoundTrip() throws IOException {
+    DoltMap map = new DoltMap(41, 19, 10, 3L);
+    Path path = folder.newFile().toPath();
+    MapFile.write(map, path);
+
+    try (MapFile file = MapFile.open(path)) {
+      assertEquals(41, file.getWidth());
+      assertEquals(19, file.getHeight());
+      assertEquals(3L, file.getSeed());
+      assertEquals(map.getTerritories().size(), file.getTerritoryCount());
+      for (int y = 0; y < 19; y++) {
+        for (int x = 0; x < 41; x++) {
+          MapTile tile = map.getWorld().getMapTile(x, y);
+          assertEquals(tile.getType(), file.getType(x, y));
+          assertEquals(tile.getTerritoryId(), file.getTerritoryId(x, y));
+        }
+      }
+      TerritoryGraph graph = map.getTerritoryGraph();
+      for (int t = 0; t < graph.getTerritoryCount(); t++) {
+        assertEquals(graph.getNeighborCount(t), file.getNeighborCount(t));
+        for (int n = 0; n < graph.getNeighborCount(t); n++) {
+          assertEquals(graph.getNeighbor(t, n), file.getNeighbor(t, n));
+        }
+      }
+    }
+  }
+}
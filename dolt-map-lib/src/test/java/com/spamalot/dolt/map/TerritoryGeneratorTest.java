@@ -0,0 +1,165 @@
+package com.spamalot.dolt.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.FloodFill;
+import com.spamalot.dolt.world.RandomSource;
+import com.spamalot.dolt.world.WorldTileType;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class TerritoryGeneratorTest {
+  private DoltWorld<MapTile> world;
+
+  private Territory coast;
+
+  /**
+   * Build a 5x2 world: a row of water with (3,0) off limits, above a row of
+   * land with one territory at (2,1). Growing from (2,0) gets stuck if it goes
+   * left first and succeeds if it goes right first.
+   */
+  @Before
+  public void setUp() {
+    world = new DoltWorld<>(5, 2, MapTile::new);
+    for (int x = 0; x < 5; x++) {
+      if (x != 2) {
+        world.getMapTile(x, 1).setType(WorldTileType.LAND);
+      }
+    }
+    world.getMapTile(3, 0).setOffLimits(true);
+    coast = new Territory.Builder().setWorld(world).setStartTile(world.getMapTile(2, 1)).setMinSize(1)
+        .setMaxSize(1).setFloodFill(new FloodFill<>(world)).build();
+    assertNotNull(coast);
+  }
+
+  /**
+   * Test that a failed build attempt is retried, and leaves no off limits
+   * tiles behind when a later attempt succeeds.
+   */
+  @Test
+  public void testFailedAttemptIsRetried() {
+    Recorder recorder = new Recorder();
+    TerritoryGenerator generator = generator(2, recorder);
+    generator.addTerritories(2);
+
+    assertEquals(2, generator.getTerritories().size());
+    assertEquals(1, recorder.attempts.size());
+    assertEquals(2, (int) recorder.attempts.get(0));
+    assertEquals(0, recorder.offLimits);
+    Territory grown = generator.getTerritories().get(1);
+    assertEquals(5, grown.getTileCount());
+    for (int x = 0; x < 5; x++) {
+      assertEquals(grown, world.getMapTile(x, 0).getTerritory());
+    }
+  }
+
+  /**
+   * Test that the last failed attempt marks its tiles off limits, so the same
+   * start tile is not tried again.
+   */
+  @Test
+  public void testLastFailedAttemptMarksOffLimits() {
+    Recorder recorder = new Recorder();
+    TerritoryGenerator generator = generator(1, recorder);
+    generator.addTerritories(2);
+
+    assertEquals(1, generator.getTerritories().size());
+    assertTrue(recorder.attempts.isEmpty());
+    assertEquals(3, recorder.offLimits);
+    for (int x = 0; x < 3; x++) {
+      assertTrue(world.getMapTile(x, 0).isOffLimits());
+      assertEquals(WorldTileType.WATER, world.getMapTile(x, 0).getType());
+    }
+    assertFalse(world.getMapTile(4, 0).isOffLimits());
+    assertTrue(coast.isLandLocked());
+  }
+
+  /**
+   * Test that reopening a border gives a pocket the stripe marked off limits
+   * back to the land locked territory next to it, so the pocket gets filled.
+   */
+  @Test
+  public void testReopenedPocketIsFilled() {
+    // The border at (0,0) cut the pocket (1,0)-(2,0) below the minimum size.
+    DoltWorld<MapTile> strip = new DoltWorld<>(4, 1, MapTile::new);
+    Territory inland = new Territory.Builder().setWorld(strip).setStartTile(strip.getMapTile(3, 0)).setMinSize(1)
+        .setMaxSize(1).setFloodFill(new FloodFill<>(strip)).build();
+    strip.getMapTile(1, 0).setOffLimits(true);
+    strip.getMapTile(2, 0).setOffLimits(true);
+    assertNull(Territory.getRandomAdjacentWaterTile(inland, new LeftThenRight()));
+    assertTrue(inland.isLandLocked());
+
+    TerritoryGenerator reconciler = new TerritoryGenerator(strip, 0, 4, new LeftThenRight(), 3, 3,
+        new GenerationListener() {
+        }, 0, new GenerationControl(1, GenerationControl.NO_TIME_LIMIT, GenerationControl.NO_ATTEMPT_LIMIT));
+    reconciler.addTerritory(inland);
+    reconciler.reopenBorder(0);
+    assertFalse(inland.isLandLocked());
+    assertFalse(strip.getMapTile(1, 0).isOffLimits());
+
+    reconciler.addTerritories(2);
+    assertEquals(2, reconciler.getTerritories().size());
+    Territory filled = reconciler.getTerritories().get(1);
+    for (int x = 0; x < 3; x++) {
+      assertEquals(filled, strip.getMapTile(x, 0).getTerritory());
+    }
+  }
+
+  private TerritoryGenerator generator(final int buildAttempts, final GenerationListener listener) {
+    TerritoryGenerator generator = new TerritoryGenerator(world, 0, 5, new LeftThenRight(), 5, 5, listener, 0,
+        new GenerationControl(buildAttempts, GenerationControl.NO_TIME_LIMIT, GenerationControl.NO_ATTEMPT_LIMIT));
+    generator.addTerritory(coast);
+    return generator;
+  }
+
+  /**
+   * Picks the first choice, except that the first two-way choice goes left
+   * and every later one goes right.
+   */
+  private static final class LeftThenRight implements RandomSource {
+    private int twoWayChoices;
+
+    @Override
+    public int nextInt(final int bound) {
+      return bound == 2 && this.twoWayChoices++ > 0 ? 1 : 0;
+    }
+
+    @Override
+    public long nextLong() {
+      return 0;
+    }
+
+    @Override
+    public RandomSource split() {
+      return this;
+    }
+  }
+
+  /** Remembers what it was told. */
+  private static final class Recorder implements GenerationListener {
+    private final List<Integer> attempts = new ArrayList<>();
+
+    private int offLimits;
+
+    @Override
+    public void territoryPlaced(final int tiles, final int attemptCount) {
+      this.attempts.add(attemptCount);
+    }
+
+    @Override
+    public void tilesMarkedOffLimits(final int tiles) {
+      this.offLimits += tiles;
+    }
+  }
+}
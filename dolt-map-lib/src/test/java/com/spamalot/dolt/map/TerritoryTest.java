@@ -0,0 +1,172 @@
+package com.spamalot.dolt.map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.spamalot.dolt.world.DoltWorld;
+import com.spamalot.dolt.world.FloodFill;
+import com.spamalot.dolt.world.RandomSource;
+import com.spamalot.dolt.world.WorldTileType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class TerritoryTest {
+  /**
+   * Always picks the first choice, so a territory grows down, then left, then
+   * right, then up.
+   */
+  private static final RandomSource FIRST = new RandomSource() {
+    @Override
+    public int nextInt(final int bound) {
+      return 0;
+    }
+
+    @Override
+    public long nextLong() {
+      return 0;
+    }
+
+    @Override
+    public RandomSource split() {
+      return this;
+    }
+  };
+
+  private static Territory build(final DoltWorld<MapTile> world, final int x, final int y, final int minSize,
+      final int maxSize) {
+    return new Territory.Builder().setWorld(world).setStartTile(world.getMapTile(x, y)).setMinSize(minSize)
+        .setMaxSize(maxSize).setFloodFill(new FloodFill<>(world)).setRandom(FIRST).build();
+  }
+
+  /**
+   * Test that the frontier holds every usable water tile next to the territory
+   * and that stale tiles are only dropped when drawn.
+   */
+  @Test
+  public void testFrontier() {
+    DoltWorld<MapTile> world = new DoltWorld<>(5, 5, MapTile::new);
+    Territory territory = build(world, 2, 2, 3, 3);
+    assertEquals(3, territory.getTileCount());
+    assertSame(territory, world.getMapTile(2, 4).getTerritory());
+    // Seven water tiles touch the column from (2,2) to (2,4).
+    assertEquals(7, territory.getFrontierSize());
+
+    for (int y = 0; y < 5; y++) {
+      for (int x = 0; x < 5; x++) {
+        MapTile tile = world.getMapTile(x, y);
+        if (tile.getTerritory() == null && !(x == 3 && y == 4)) {
+          tile.setType(WorldTileType.LAND);
+        }
+      }
+    }
+    assertEquals(7, territory.getFrontierSize());
+    // The first draw finds (2,1) stale, drops it and swaps (3,4) into its
+    // place; the other stale tiles stay until they are drawn.
+    assertSame(world.getMapTile(3, 4), Territory.getRandomAdjacentWaterTile(territory, FIRST));
+    assertEquals(6, territory.getFrontierSize());
+    assertFalse(territory.isLandLocked());
+
+    world.getMapTile(3, 4).setOffLimits(true);
+    assertNull(Territory.getRandomAdjacentWaterTile(territory, FIRST));
+    assertEquals(0, territory.getFrontierSize());
+    assertTrue(territory.isLandLocked());
+  }
+
+  /**
+   * Test that the tile accessors agree with each other and with the tiles.
+   */
+  @Test
+  public void testTileAccessors() {
+    DoltWorld<MapTile> world = new DoltWorld<>(5, 5, MapTile::new);
+    Territory territory = build(world, 2, 2, 3, 3);
+
+    final List<MapTile> visited = new ArrayList<>();
+    territory.forEachTile(visited::add);
+    assertEquals(Arrays.asList(world.getMapTile(2, 2), world.getMapTile(2, 3), world.getMapTile(2, 4)), visited);
+    for (int n = 0; n < visited.size(); n++) {
+      assertSame(visited.get(n), territory.getTile(n));
+      assertEquals(12 + 5 * n, territory.getTileIndex(n));
+      assertTrue(territory.containsTile(visited.get(n)));
+    }
+    assertFalse(territory.containsTile(world.getMapTile(2, 1)));
+    try {
+      territory.getTileIndex(3);
+      fail("There are only three tiles.");
+    } catch (IndexOutOfBoundsException e) {
+      // Expected.
+    }
+
+    Set<MapTile> tiles = territory.getTerritoryTiles();
+    assertEquals(new HashSet<>(visited), tiles);
+    assertFalse(tiles.contains(world.getMapTile(2, 1)));
+    assertEquals(2, territory.getMinX());
+    assertEquals(2, territory.getMaxX());
+    assertEquals(2, territory.getMinY());
+    assertEquals(4, territory.getMaxY());
+    assertEquals(3.0, territory.getCentroidY(), 0.0);
+  }
+
+  /**
+   * Test that removing every tile leaves an empty Territory, whose tile view
+   * still keeps the Set contract.
+   */
+  @Test
+  public void testRemoveAllTiles() {
+    DoltWorld<MapTile> world = new DoltWorld<>(5, 5, MapTile::new);
+    Territory territory = build(world, 2, 2, 3, 3);
+    Set<MapTile> tiles = territory.getTerritoryTiles();
+    territory.forEachTile(tile -> tile.setTerritory(null));
+    territory.removeAllTiles();
+
+    assertEquals(0, territory.getTileCount());
+    assertTrue(tiles.isEmpty());
+    assertFalse(tiles.iterator().hasNext());
+    assertEquals(tiles, Collections.emptySet());
+    assertEquals(0, territory.getFrontierSize());
+    assertEquals(Integer.MAX_VALUE, territory.getMinX());
+    assertEquals(Integer.MAX_VALUE, territory.getMinY());
+    assertEquals(-1, territory.getMaxX());
+    assertEquals(-1, territory.getMaxY());
+    assertTrue(Double.isNaN(territory.getCentroidX()));
+    assertTrue(Double.isNaN(territory.getCentroidY()));
+  }
+
+  /**
+   * Test that a territory that cannot grow to its minimum size gives its tiles
+   * back as water, off limits unless another attempt is to be made.
+   */
+  @Test
+  public void testFailedTerritoryIsCleared() {
+    for (boolean offLimits : new boolean[] { false, true }) {
+      DoltWorld<MapTile> world = new DoltWorld<>(5, 1, MapTile::new);
+      // Off limits water still counts as room, but growth cannot use it, so the
+      // territory gets stuck at (0,0) with three tiles.
+      world.getMapTile(3, 0).setOffLimits(true);
+      Territory territory = new Territory.Builder().setWorld(world).setStartTile(world.getMapTile(2, 0))
+          .setMinSize(5).setMaxSize(5).setFloodFill(new FloodFill<>(world)).setRandom(FIRST)
+          .setOffLimitsOnFailure(offLimits).build();
+
+      assertNull(territory);
+      for (int x = 0; x < 3; x++) {
+        MapTile tile = world.getMapTile(x, 0);
+        assertEquals(WorldTileType.WATER, tile.getType());
+        assertEquals(offLimits, tile.isOffLimits());
+        assertNull(tile.getTerritory());
+      }
+      assertFalse(world.getMapTile(4, 0).isOffLimits());
+    }
+  }
+}
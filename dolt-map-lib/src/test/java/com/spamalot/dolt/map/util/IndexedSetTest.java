@@ -0,0 +1,90 @@
+package com.spamalot.dolt.map.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class IndexedSetTest {
+
+  /**
+   * Test that elements are only added once and can be found again.
+   */
+  @Test
+  public void testAddAndContains() {
+    IndexedSet<String> set = new IndexedSet<>();
+    assertTrue(set.isEmpty());
+    assertTrue(set.add("a"));
+    assertTrue(set.add("b"));
+    assertFalse(set.add("a"));
+    assertEquals(2, set.size());
+    assertTrue(set.contains("b"));
+    assertFalse(set.contains("c"));
+    assertEquals("a", set.get(0));
+    assertEquals("b", set.get(1));
+  }
+
+  /**
+   * Test that removing swaps the last element into the hole and keeps every
+   * position findable.
+   */
+  @Test
+  public void testRemoveSwapsLastIn() {
+    IndexedSet<String> set = new IndexedSet<>();
+    set.add("a");
+    set.add("b");
+    set.add("c");
+    set.add("d");
+
+    assertTrue(set.remove("b"));
+    assertFalse(set.remove("b"));
+    assertEquals(3, set.size());
+    assertEquals("d", set.get(1));
+
+    assertEquals("a", set.removeAt(0));
+    assertEquals("c", set.get(0));
+    assertEquals("d", set.get(1));
+
+    // Removing the last element has nothing to swap in.
+    assertEquals("d", set.removeAt(1));
+    assertEquals(1, set.size());
+    assertTrue(set.remove("c"));
+    assertTrue(set.isEmpty());
+
+    set.add("e");
+    set.clear();
+    assertFalse(set.contains("e"));
+    assertTrue(set.isEmpty());
+  }
+
+  /**
+   * Test that random access by position covers every element once, after a
+   * mix of adds and removes.
+   */
+  @Test
+  public void testGetCoversEveryElement() {
+    IndexedSet<Integer> set = new IndexedSet<>();
+    for (int i = 0; i < 100; i++) {
+      set.add(i);
+    }
+    for (int i = 0; i < 100; i += 3) {
+      set.remove(i);
+    }
+    Set<Integer> seen = new HashSet<>();
+    for (int n = 0; n < set.size(); n++) {
+      assertTrue(seen.add(set.get(n)));
+    }
+    assertEquals(66, seen.size());
+    for (int i = 0; i < 100; i++) {
+      assertEquals(i % 3 != 0, seen.contains(i));
+      assertEquals(i % 3 != 0, set.contains(i));
+    }
+  }
+}
@@ -0,0 +1,104 @@
+package com.spamalot.dolt.world;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Remember which tiles of a World changed until the changes are flushed to
+ * the listeners. Tiles only point at a tracker while a World has listeners,
+ * so a World nobody listens to pays one null check per change.
+ *
+ * <p>
+ * Marking is synchronized because generation may change tiles from several
+ * threads at once.
+ *
+ * @author gej
+ *
+ */
+final class DirtyTracker {
+  /** Side of a chunk in tiles. */
+  static final int CHUNK_SIZE = 32;
+
+  /** Width of the World. */
+  private final int worldWidth;
+
+  /** Number of chunks across the World. */
+  private final int chunksAcross;
+
+  /** The listeners to flush to. */
+  private final List<TileChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+  /** Tiles changed since the last flush. */
+  private final BitSet dirtyTiles = new BitSet();
+
+  /** Chunks changed since the last flush. */
+  private final BitSet dirtyChunks = new BitSet();
+
+  /** Ids of the changed chunks in the order they first changed. */
+  private int[] chunkList = new int[16];
+
+  /** Number of changed chunks. */
+  private int chunkCount;
+
+  DirtyTracker(final int worldWidth) {
+    this.worldWidth = worldWidth;
+    this.chunksAcross = (worldWidth + CHUNK_SIZE - 1) / CHUNK_SIZE;
+  }
+
+  void addListener(final TileChangeListener listener) {
+    this.listeners.add(listener);
+  }
+
+  boolean removeListener(final TileChangeListener listener) {
+    this.listeners.remove(listener);
+    return this.listeners.isEmpty();
+  }
+
+  /**
+   * Record that a tile changed.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   */
+  synchronized void markDirty(final int x, final int y) {
+    this.dirtyTiles.set(y * this.worldWidth + x);
+    final int chunk = y / CHUNK_SIZE * this.chunksAcross + x / CHUNK_SIZE;
+    if (!this.dirtyChunks.get(chunk)) {
+      this.dirtyChunks.set(chunk);
+      if (this.chunkCount == this.chunkList.length) {
+        this.chunkList = Arrays.copyOf(this.chunkList, this.chunkCount * 2);
+      }
+      this.chunkList[this.chunkCount++] = chunk;
+    }
+  }
+
+  synchronized boolean isDirty(final int x, final int y) {
+    return this.dirtyTiles.get(y * this.worldWidth + x);
+  }
+
+  synchronized int getDirtyCount() {
+    return this.dirtyTiles.cardinality();
+  }
+
+  /**
+   * Hand the changes to every listener and start over.
+   */
+  void flush() {
+    final TileChanges changes;
+    synchronized (this) {
+      if (this.chunkCount == 0) {
+        return;
+      }
+      changes = new TileChanges(this.worldWidth, CHUNK_SIZE, this.dirtyTiles.stream().toArray(),
+          Arrays.copyOf(this.chunkList, this.chunkCount));
+      this.dirtyTiles.clear();
+      this.dirtyChunks.clear();
+      this.chunkCount = 0;
+    }
+    for (TileChangeListener listener : this.listeners) {
+      listener.tilesChanged(changes);
+    }
+  }
+}
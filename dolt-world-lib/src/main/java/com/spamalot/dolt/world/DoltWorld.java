@@ -1,11 +1,15 @@
 package com.spamalot.dolt.world;
 
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkElementIndex;
 import static com.google.common.base.Preconditions.checkNotNull;
 
-import com.google.common.collect.Range;
 import com.spamalot.dolt.world.grid.Direction;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.lang.reflect.Constructor;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
 
 /**
  * The World class. A World is just the terrain, not the political
@@ -17,44 +21,123 @@ import org.slf4j.LoggerFactory;
  *
  */
 public class DoltWorld<T extends WorldTile<T>> {
-  /** Loggit. */
-  private static final Logger LOGGER = LoggerFactory.getLogger(DoltWorld.class);
-
-  /** A range check object for the height of the map. */
-  private final Range<Integer> heightRange;
+  /** Slots each thread builds at a time when building in parallel. */
+  private static final int PARALLEL_CHUNK = 1 << 14;
 
   /** Actual height of the Map. */
   private final int mapHeight;
 
-  /** The MapTiles that make up this Map. */
-  private T[][] mapTiles;
+  /** How the tiles are arranged in {@link #mapTiles}. */
+  private final TileLayout layout;
+
+  /** The MapTiles that make up this Map, in layout order. */
+  private final T[] mapTiles;
 
   /** Actual width of the Map. */
   private final int mapWidth;
 
-  /** A range check object for the width of the map. */
-  private final Range<Integer> widthRange;
+  /** Changed tiles waiting to be flushed, or null if nobody listens. */
+  private volatile DirtyTracker dirtyTracker;
 
   /**
-   * Construct a Map Object.
+   * Construct a Map Object, creating tiles through the no argument
+   * constructor of their class. Prefer
+   * {@link #DoltWorld(int, int, Supplier)}, which avoids reflection.
    *
    * @param width  Width of the Map
    * @param height Height of the Map
    * @param clazz  Class of the tile
+   * @throws IllegalArgumentException if the class has no accessible no
+   *                                  argument constructor
    */
-  @SuppressWarnings("unchecked")
   public DoltWorld(final int width, final int height, final Class<T> clazz) {
+    this(width, height, constructorOf(clazz), false);
+  }
+
+  /**
+   * Construct a Map Object.
+   *
+   * @param width       Width of the Map
+   * @param height      Height of the Map
+   * @param tileFactory makes each tile
+   */
+  public DoltWorld(final int width, final int height, final Supplier<? extends T> tileFactory) {
+    this(width, height, tileFactory, false);
+  }
+
+  /**
+   * Construct a row-major Map Object, optionally building it on the common
+   * ForkJoinPool. Each tile is linked to its neighbors as it is made.
+   *
+   * @param width       Width of the Map
+   * @param height      Height of the Map
+   * @param tileFactory makes each tile; must be thread safe if parallel
+   * @param parallel    whether to build parts of the Map concurrently
+   */
+  public DoltWorld(final int width, final int height, final Supplier<? extends T> tileFactory,
+      final boolean parallel) {
+    this(width, height, tileFactory, TileLayout.ROW_MAJOR, parallel);
+  }
+
+  /**
+   * Construct a Map Object with a chosen memory layout, optionally building
+   * it on the common ForkJoinPool. Tiles are made in layout order and each
+   * is linked to its neighbors as it is made.
+   *
+   * @param width       Width of the Map
+   * @param height      Height of the Map
+   * @param tileFactory makes each tile; must be thread safe if parallel
+   * @param layout      how to arrange the tiles in memory
+   * @param parallel    whether to build parts of the Map concurrently
+   */
+  @SuppressWarnings("unchecked")
+  public DoltWorld(final int width, final int height, final Supplier<? extends T> tileFactory,
+      final TileLayout layout, final boolean parallel) {
+    checkArgument(width >= 0 && height >= 0, "World dimensions must not be negative.");
+    checkArgument((long) width * height <= Integer.MAX_VALUE, "World is too large to index.");
+    checkNotNull(tileFactory);
     this.mapWidth = width;
     this.mapHeight = height;
+    this.layout = checkNotNull(layout);
+
+    this.mapTiles = (T[]) new WorldTile[layout.capacity(width, height)];
+    final int slots = this.mapTiles.length;
+    final int chunks = (slots + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+    if (parallel && chunks > 1) {
+      IntStream.range(0, chunks).parallel().forEach(chunk -> buildSlots(chunk * PARALLEL_CHUNK,
+          Math.min(slots, (chunk + 1) * PARALLEL_CHUNK), tileFactory));
+      IntStream.range(1, chunks).parallel().forEach(chunk -> linkToEarlierSlots(chunk * PARALLEL_CHUNK,
+          Math.min(slots, (chunk + 1) * PARALLEL_CHUNK)));
+    } else {
+      buildSlots(0, slots, tileFactory);
+    }
+  }
 
-    this.widthRange = Range.closedOpen(0, this.mapWidth);
-    this.heightRange = Range.closedOpen(0, this.mapHeight);
+  /**
+   * Get how the tiles are arranged in memory.
+   *
+   * @return the layout
+   */
+  public final TileLayout getLayout() {
+    return this.layout;
+  }
+
+  /**
+   * Get the width of the Map.
+   *
+   * @return the width
+   */
+  public final int getWidth() {
+    return this.mapWidth;
+  }
 
-    this.mapTiles = (T[][]) new WorldTile[width][height];
-    // Initialize all the tiles to be water tiles.
-    initMapTiles(width, height, WorldTileType.WATER, clazz);
-    // Link the tiles orthogonally to their neighbors
-    linkTiles();
+  /**
+   * Get the height of the Map.
+   *
+   * @return the height
+   */
+  public final int getHeight() {
+    return this.mapHeight;
   }
 
   /**
@@ -67,46 +150,414 @@ public class DoltWorld<T extends WorldTile<T>> {
   public final T getMapTile(final int i, final int j) {
     T ret = null;
     if (isOnMap(i, j)) {
-      ret = this.mapTiles[i][j];
+      ret = this.mapTiles[this.layout.slotOf(i, j, this.mapWidth, this.mapHeight)];
     }
     return ret;
   }
 
   /**
-   * Get a map tile in a direction.
+   * Get the map tile at a World index.
+   *
+   * @param index {@code j * width + i}
+   * @return The map tile at that index
+   * @throws IndexOutOfBoundsException if the index is not on the Map
+   */
+  public final T getMapTile(final int index) {
+    checkElementIndex(index, getTileCount());
+    return getMapTileUnchecked(index % this.mapWidth, index / this.mapWidth);
+  }
+
+  /**
+   * Get the map tile without checking the coordinates against the Map. For
+   * loops that already stay on the Map; coordinates off it give an undefined
+   * tile or an exception.
+   *
+   * @param i Horizontal coordinate, {@code 0 <= i < width}
+   * @param j Vertical coordinate, {@code 0 <= j < height}
+   * @return The map tile at those coordinates
+   */
+  public final T getMapTileUnchecked(final int i, final int j) {
+    return this.mapTiles[this.layout.slotOf(i, j, this.mapWidth, this.mapHeight)];
+  }
+
+  /**
+   * Get the number of tiles in the Map.
+   *
+   * @return width times height
+   */
+  public final int getTileCount() {
+    return this.mapWidth * this.mapHeight;
+  }
+
+  /**
+   * Get the World index of a coordinate, as used by
+   * {@link #getMapTile(int)}.
+   *
+   * @param i Horizontal coordinate
+   * @param j Vertical coordinate
+   * @return {@code j * width + i}
+   */
+  public final int indexOf(final int i, final int j) {
+    return j * this.mapWidth + i;
+  }
+
+  /**
+   * Visit every tile in row-major order, left to right then top to bottom.
+   * This follows memory order for a {@link TileLayout#ROW_MAJOR} World.
+   *
+   * @param action what to do with each tile
+   */
+  public final void forEachTile(final Consumer<? super T> action) {
+    if (this.layout == TileLayout.ROW_MAJOR) {
+      forEachTileInLayoutOrder(action);
+      return;
+    }
+    for (int j = 0; j < this.mapHeight; j++) {
+      for (int i = 0; i < this.mapWidth; i++) {
+        action.accept(getMapTileUnchecked(i, j));
+      }
+    }
+  }
+
+  /**
+   * Visit every tile in memory order, the fastest way to touch them all when
+   * the order does not matter.
+   *
+   * @param action what to do with each tile
+   */
+  public final void forEachTileInLayoutOrder(final Consumer<? super T> action) {
+    for (T tile : this.mapTiles) {
+      if (tile != null) {
+        action.accept(tile);
+      }
+    }
+  }
+
+  /**
+   * Get the World index of every tile, in row-major order.
+   *
+   * @return the indices, from 0 to {@link #getTileCount()}
+   */
+  public final IntStream tileIndices() {
+    return IntStream.range(0, getTileCount());
+  }
+
+  /*
+   * Spatial queries. Each area comes two ways: as an IntStream of World
+   * indices in row-major order, or written into a caller's buffer. The
+   * buffer methods allocate nothing; they write as many indices as fit and
+   * return how many tiles the area has, so a caller can tell a buffer was too
+   * small. Areas are clipped to the Map.
+   */
+
+  /**
+   * Get the World indices of the tiles in a rectangle.
+   *
+   * @param x      left edge
+   * @param y      top edge
+   * @param width  width of the rectangle
+   * @param height height of the rectangle
+   * @return the indices in row-major order
+   */
+  public final IntStream rectangleIndices(final int x, final int y, final int width, final int height) {
+    return clippedIndices(x, (long) x + Math.max(0, width), y, (long) y + Math.max(0, height));
+  }
+
+  /**
+   * Write the World indices of the tiles in a rectangle into a buffer.
+   *
+   * @param x      left edge
+   * @param y      top edge
+   * @param width  width of the rectangle
+   * @param height height of the rectangle
+   * @param buffer where to write the indices in row-major order
+   * @return the number of tiles in the rectangle
+   */
+  public final int fillRectangle(final int x, final int y, final int width, final int height, final int[] buffer) {
+    return fillClipped(x, (long) x + Math.max(0, width), y, (long) y + Math.max(0, height), buffer);
+  }
+
+  /**
+   * Get the World indices of the tiles within a Chebyshev distance of a
+   * tile, a square centered on it.
+   *
+   * @param x      Horizontal coordinate of the center
+   * @param y      Vertical coordinate of the center
+   * @param radius largest distance included
+   * @return the indices in row-major order
+   */
+  public final IntStream chebyshevIndices(final int x, final int y, final int radius) {
+    checkArgument(radius >= 0, "Radius must not be negative.");
+    return clippedIndices((long) x - radius, (long) x + radius + 1, (long) y - radius, (long) y + radius + 1);
+  }
+
+  /**
+   * Write the World indices of the tiles within a Chebyshev distance of a
+   * tile into a buffer.
    *
-   * @param i   Horizontal coordinate
-   * @param j   Vertical coordinate
-   * @param dir Direction to get map tile
-   * @return The map tile in that direction
+   * @param x      Horizontal coordinate of the center
+   * @param y      Vertical coordinate of the center
+   * @param radius largest distance included
+   * @param buffer where to write the indices in row-major order
+   * @return the number of tiles in the area
    */
-  private T getMapTileInDirection(final int i, final int j, final Direction dir) {
+  public final int fillChebyshev(final int x, final int y, final int radius, final int[] buffer) {
+    checkArgument(radius >= 0, "Radius must not be negative.");
+    return fillClipped((long) x - radius, (long) x + radius + 1, (long) y - radius, (long) y + radius + 1, buffer);
+  }
+
+  /**
+   * Get the World indices of the tiles within a Manhattan distance of a
+   * tile, a diamond centered on it.
+   *
+   * @param x      Horizontal coordinate of the center
+   * @param y      Vertical coordinate of the center
+   * @param radius largest distance included
+   * @return the indices in row-major order
+   */
+  public final IntStream manhattanIndices(final int x, final int y, final int radius) {
+    checkArgument(radius >= 0, "Radius must not be negative.");
+    return IntStream.range(clip((long) y - radius, this.mapHeight), clip((long) y + radius + 1, this.mapHeight))
+        .flatMap(j -> {
+          final long half = radius - Math.abs((long) j - y);
+          return IntStream.range(indexOf(clip((long) x - half, this.mapWidth), j),
+              indexOf(clip((long) x + half + 1, this.mapWidth), j));
+        });
+  }
+
+  /**
+   * Write the World indices of the tiles within a Manhattan distance of a
+   * tile into a buffer.
+   *
+   * @param x      Horizontal coordinate of the center
+   * @param y      Vertical coordinate of the center
+   * @param radius largest distance included
+   * @param buffer where to write the indices in row-major order
+   * @return the number of tiles in the area
+   */
+  public final int fillManhattan(final int x, final int y, final int radius, final int[] buffer) {
+    checkArgument(radius >= 0, "Radius must not be negative.");
+    final int bottom = clip((long) y + radius + 1, this.mapHeight);
+    int count = 0;
+    for (int j = clip((long) y - radius, this.mapHeight); j < bottom; j++) {
+      final long half = radius - Math.abs((long) j - y);
+      count = fillRow(clip((long) x - half, this.mapWidth), clip((long) x + half + 1, this.mapWidth), j, buffer,
+          count);
+    }
+    return count;
+  }
+
+  /**
+   * Get the World indices of the tiles a ray passes, stepping from a tile in
+   * a Direction. The starting tile is not included. The ray stops at the
+   * edge of the Map, after maxLength tiles, or after the first tile that
+   * blocks it, which is included.
+   *
+   * @param x         Horizontal coordinate to start from
+   * @param y         Vertical coordinate to start from
+   * @param dir       Direction to step in
+   * @param maxLength most tiles to include
+   * @param blocks    which tiles stop the ray
+   * @return the indices in the order the ray reaches them
+   */
+  public final IntStream rayIndices(final int x, final int y, final Direction dir, final int maxLength,
+      final Predicate<? super T> blocks) {
+    final int length = rayLength(x, y, dir, maxLength, blocks);
+    final int step = dir.getvDiff() * this.mapWidth + dir.gethDiff();
+    final int start = indexOf(x, y);
+    return IntStream.rangeClosed(1, length).map(k -> start + k * step);
+  }
+
+  /**
+   * Write the World indices of the tiles a ray passes into a buffer. See
+   * {@link #rayIndices(int, int, Direction, int, Predicate)}.
+   *
+   * @param x         Horizontal coordinate to start from
+   * @param y         Vertical coordinate to start from
+   * @param dir       Direction to step in
+   * @param maxLength most tiles to include
+   * @param blocks    which tiles stop the ray
+   * @param buffer    where to write the indices in the order the ray reaches
+   *                  them
+   * @return the number of tiles on the ray
+   */
+  public final int fillRay(final int x, final int y, final Direction dir, final int maxLength,
+      final Predicate<? super T> blocks, final int[] buffer) {
+    final int length = rayLength(x, y, dir, maxLength, blocks);
+    final int step = dir.getvDiff() * this.mapWidth + dir.gethDiff();
+    final int start = indexOf(x, y);
+    final int written = Math.min(length, buffer.length);
+    for (int k = 0; k < written; k++) {
+      buffer[k] = start + (k + 1) * step;
+    }
+    return length;
+  }
+
+  private int rayLength(final int x, final int y, final Direction dir, final int maxLength,
+      final Predicate<? super T> blocks) {
+    checkArgument(isOnMap(x, y), "Ray must start on the Map.");
     checkNotNull(dir);
+    checkNotNull(blocks);
+    int length = 0;
+    int i = x + dir.gethDiff();
+    int j = y + dir.getvDiff();
+    while (length < maxLength && isOnMap(i, j)) {
+      length++;
+      if (blocks.test(getMapTileUnchecked(i, j))) {
+        break;
+      }
+      i += dir.gethDiff();
+      j += dir.getvDiff();
+    }
+    return length;
+  }
+
+  /**
+   * Write one row of indices into a buffer, as far as it fits.
+   *
+   * @param left   first column
+   * @param right  column after the last
+   * @param j      the row
+   * @param buffer where to write
+   * @param count  indices written so far, counting those that did not fit
+   * @return the new count
+   */
+  private int fillRow(final int left, final int right, final int j, final int[] buffer, final int count) {
+    final int start = indexOf(left, j);
+    final int fit = Math.max(0, Math.min(right - left, buffer.length - count));
+    for (int k = 0; k < fit; k++) {
+      buffer[count + k] = start + k;
+    }
+    return count + Math.max(0, right - left);
+  }
+
+  /**
+   * Get the World indices of the tiles in a rectangle given by its edges,
+   * which may lie anywhere, clipped to the Map.
+   *
+   * @param left   left edge, included
+   * @param right  right edge, excluded
+   * @param top    top edge, included
+   * @param bottom bottom edge, excluded
+   * @return the indices in row-major order
+   */
+  private IntStream clippedIndices(final long left, final long right, final long top, final long bottom) {
+    final int l = clip(left, this.mapWidth);
+    final int r = clip(right, this.mapWidth);
+    return IntStream.range(clip(top, this.mapHeight), clip(bottom, this.mapHeight))
+        .flatMap(j -> IntStream.range(indexOf(l, j), indexOf(r, j)));
+  }
+
+  private int fillClipped(final long left, final long right, final long top, final long bottom,
+      final int[] buffer) {
+    final int l = clip(left, this.mapWidth);
+    final int r = clip(right, this.mapWidth);
+    final int b = clip(bottom, this.mapHeight);
+    int count = 0;
+    for (int j = clip(top, this.mapHeight); j < b; j++) {
+      count = fillRow(l, r, j, buffer, count);
+    }
+    return count;
+  }
+
+  private static int clip(final long value, final int limit) {
+    return (int) Math.max(0, Math.min(value, limit));
+  }
 
-    return getMapTile(i + dir.gethDiff(), j + dir.getvDiff());
+  /**
+   * Create water tiles for a range of slots and link each tile to its left
+   * and upper neighbors as it is made. Every layout puts those neighbors in
+   * earlier slots, so they already exist unless they are before the range.
+   *
+   * @param fromSlot    first slot of the range
+   * @param toSlot      slot after the range
+   * @param tileFactory makes each tile
+   */
+  private void buildSlots(final int fromSlot, final int toSlot, final Supplier<? extends T> tileFactory) {
+    for (int slot = fromSlot; slot < toSlot; slot++) {
+      final int i = this.layout.xOf(slot, this.mapWidth, this.mapHeight);
+      final int j = this.layout.yOf(slot, this.mapWidth, this.mapHeight);
+      if (i >= this.mapWidth || j >= this.mapHeight) {
+        // Padding.
+        continue;
+      }
+      final T tile = checkNotNull(tileFactory.get(), "Tile factory returned null.");
+      tile.setType(WorldTileType.WATER);
+      tile.setLocation(i, j);
+      this.mapTiles[slot] = tile;
+      linkBack(tile, i, j, fromSlot, true);
+    }
   }
 
   /**
-   * Create the map, with all the tiles being of type.
+   * Link the tiles in a range of slots to left and upper neighbors that are
+   * before the range. Used once every range has been built.
    *
-   * @param width  Width of the map
-   * @param height Height of the map
-   * @param type   Type of tile
-   * @param clazz  Class of tile
+   * @param fromSlot first slot of the range
+   * @param toSlot   slot after the range
    */
-  private void initMapTiles(final int width, final int height, final WorldTileType type, final Class<T> clazz) {
-    for (int i = 0; i < width; i++) {
-      for (int j = 0; j < height; j++) {
-        try {
-          this.mapTiles[i][j] = clazz.newInstance();
-        } catch (InstantiationException | IllegalAccessException e) {
-          LOGGER.info("Creating an object failed.", e);
-        }
-        this.mapTiles[i][j].setType(type);
+  private void linkToEarlierSlots(final int fromSlot, final int toSlot) {
+    for (int slot = fromSlot; slot < toSlot; slot++) {
+      final T tile = this.mapTiles[slot];
+      if (tile != null) {
+        linkBack(tile, tile.getX(), tile.getY(), fromSlot, false);
       }
     }
   }
 
+  /**
+   * Link a tile to its left and upper neighbors, both ways.
+   *
+   * @param tile     the tile
+   * @param i        its horizontal coordinate
+   * @param j        its vertical coordinate
+   * @param fromSlot start of the range being built
+   * @param inRange  link neighbors at or after fromSlot if true, before it if
+   *                 false
+   */
+  private void linkBack(final T tile, final int i, final int j, final int fromSlot, final boolean inRange) {
+    if (i > 0) {
+      final int slot = this.layout.slotOf(i - 1, j, this.mapWidth, this.mapHeight);
+      if (slot >= fromSlot == inRange) {
+        final T left = this.mapTiles[slot];
+        tile.linkCellInDirection(Direction.LEFT, left);
+        left.linkCellInDirection(Direction.RIGHT, tile);
+      }
+    }
+    if (j > 0) {
+      final int slot = this.layout.slotOf(i, j - 1, this.mapWidth, this.mapHeight);
+      if (slot >= fromSlot == inRange) {
+        final T upper = this.mapTiles[slot];
+        tile.linkCellInDirection(Direction.UP, upper);
+        upper.linkCellInDirection(Direction.DOWN, tile);
+      }
+    }
+  }
+
+  /**
+   * Make tiles through the no argument constructor of their class, looked up
+   * once.
+   *
+   * @param clazz Class of tile
+   * @return a factory for the tiles
+   */
+  private static <T> Supplier<T> constructorOf(final Class<T> clazz) {
+    final Constructor<T> constructor;
+    try {
+      constructor = clazz.getDeclaredConstructor();
+      constructor.setAccessible(true);
+    } catch (NoSuchMethodException | SecurityException e) {
+      throw new IllegalArgumentException(clazz + " has no usable no argument constructor.", e);
+    }
+    return () -> {
+      try {
+        return constructor.newInstance();
+      } catch (ReflectiveOperationException e) {
+        throw new IllegalStateException("Creating a " + clazz.getSimpleName() + " failed.", e);
+      }
+    };
+  }
+
   /**
    * Check if coordinate is on map.
    *
@@ -114,49 +565,83 @@ public class DoltWorld<T extends WorldTile<T>> {
    * @param y The Y ordinate
    * @return true if this Coordinate is on the Map
    */
-  private boolean isOnMap(final int x, final int y) {
-    return this.widthRange.contains(x) && this.heightRange.contains(y);
+  public final boolean isOnMap(final int x, final int y) {
+    return x >= 0 && x < this.mapWidth && y >= 0 && y < this.mapHeight;
   }
 
   /**
-   * Link the tiles together.
+   * Start telling a listener which tiles change. Changes are batched until
+   * {@link #flushChanges()}. A World without listeners does not track
+   * changes at all.
+   *
+   * @param listener the listener
    */
-  private void linkTiles() {
-    for (int i = 0; i < this.mapWidth; i++) {
-      for (int j = 0; j < this.mapHeight; j++) {
-        T cur = getMapTile(i, j);
-        if (cur != null) {
-          cur.linkCellInDirection(Direction.LEFT, getMapTileInDirection(i, j, Direction.LEFT));
-          cur.linkCellInDirection(Direction.RIGHT, getMapTileInDirection(i, j, Direction.RIGHT));
-          cur.linkCellInDirection(Direction.UP, getMapTileInDirection(i, j, Direction.UP));
-          cur.linkCellInDirection(Direction.DOWN, getMapTileInDirection(i, j, Direction.DOWN));
-        }
-      }
+  public final synchronized void addTileChangeListener(final TileChangeListener listener) {
+    checkNotNull(listener);
+    if (this.dirtyTracker == null) {
+      this.dirtyTracker = new DirtyTracker(this.mapWidth);
+      setChangeTracker(this.dirtyTracker);
     }
+    this.dirtyTracker.addListener(listener);
   }
 
-  @Override
-  public final String toString() {
+  /**
+   * Stop telling a listener about changes. Tracking stops with the last
+   * listener, dropping any changes not yet flushed.
+   *
+   * @param listener the listener
+   */
+  public final synchronized void removeTileChangeListener(final TileChangeListener listener) {
+    if (this.dirtyTracker != null && this.dirtyTracker.removeListener(listener)) {
+      this.dirtyTracker = null;
+      setChangeTracker(null);
+    }
+  }
 
-    final StringBuilder sb = new StringBuilder();
-    sb.append('+');
-    for (int x = 0; x < this.mapWidth; x++) {
-      sb.append("-+");
-    }
-    sb.append('\n');
-    for (int y = 0; y < this.mapHeight; y++) {
-      sb.append('|');
-      for (int x = 0; x < this.mapWidth; x++) {
-        sb.append(this.mapTiles[x][y]);
-        sb.append('|');
-      }
-      sb.append("\n+");
-      for (int x = 0; x < this.mapWidth; x++) {
-        sb.append("-+");
-      }
-      sb.append('\n');
+  /**
+   * Hand the tiles changed since the last flush to the listeners in one
+   * batch. Does nothing if nothing changed.
+   */
+  public final void flushChanges() {
+    final DirtyTracker tracker = this.dirtyTracker;
+    if (tracker != null) {
+      tracker.flush();
     }
-    return sb.toString();
+  }
+
+  /**
+   * Check if a tile changed since the last flush.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   * @return true if the tile changed, false if it did not or nobody listens
+   */
+  public final boolean isDirty(final int x, final int y) {
+    final DirtyTracker tracker = this.dirtyTracker;
+    return tracker != null && isOnMap(x, y) && tracker.isDirty(x, y);
+  }
+
+  /**
+   * Get the number of tiles changed since the last flush.
+   *
+   * @return the number of changed tiles, 0 if nobody listens
+   */
+  public final int getDirtyCount() {
+    final DirtyTracker tracker = this.dirtyTracker;
+    return tracker == null ? 0 : tracker.getDirtyCount();
+  }
+
+  private void setChangeTracker(final DirtyTracker tracker) {
+    forEachTileInLayoutOrder(tile -> tile.setChangeTracker(tracker));
+  }
+
+  /**
+   * Render the whole Map into one String. Use a {@link WorldRenderer} to
+   * stream large Maps instead.
+   */
+  @Override
+  public final String toString() {
+    return new WorldRenderer<T>().renderToString(this);
   }
 
 }
@@ -0,0 +1,250 @@
+package com.spamalot.dolt.world;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.spamalot.dolt.world.grid.Direction;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * A reusable breadth first flood fill over a rectangular region of a
+ * DoltWorld.
+ *
+ * <p>
+ * The queue is a plain int array of cell indices. Every cell is enqueued at
+ * most once, so the array never needs to wrap and, once a fill is done, holds
+ * exactly the visited cells in the order they were reached. Visited cells are
+ * tracked with a generation stamp per cell, so nothing has to be cleared
+ * between fills.
+ *
+ * <p>
+ * An instance is not thread safe; use one per thread.
+ *
+ * @author gej
+ *
+ * @param <T> A tile type
+ */
+public final class FloodFill<T extends WorldTile<T>> {
+  /** Number of Directions a tile has neighbors in. */
+  private static final int DIRECTION_COUNT = Direction.values().length;
+
+  /** The World to fill. */
+  private final DoltWorld<T> world;
+
+  /** Left edge of the region. */
+  private final int regionX;
+
+  /** Top edge of the region. */
+  private final int regionY;
+
+  /** Width of the region. */
+  private final int regionWidth;
+
+  /** Height of the region. */
+  private final int regionHeight;
+
+  /** Region indices of the cells reached by the last fill, in BFS order. */
+  private final int[] queue;
+
+  /** Generation in which each cell was last visited. */
+  private final int[] stamps;
+
+  /** Current generation. */
+  private int generation;
+
+  /** Number of cells reached by the last fill. */
+  private int visitedCount;
+
+  /**
+   * Create a flood fill engine covering the whole World.
+   *
+   * @param world The World
+   */
+  public FloodFill(final DoltWorld<T> world) {
+    this(world, 0, 0, world.getWidth(), world.getHeight());
+  }
+
+  /**
+   * Create a flood fill engine that never leaves a rectangular region.
+   *
+   * @param world  The World
+   * @param x      Left edge of the region
+   * @param y      Top edge of the region
+   * @param width  Width of the region
+   * @param height Height of the region
+   */
+  public FloodFill(final DoltWorld<T> world, final int x, final int y, final int width, final int height) {
+    this.world = checkNotNull(world);
+    checkArgument(x >= 0 && y >= 0 && width > 0 && height > 0 && x + width <= world.getWidth()
+        && y + height <= world.getHeight(), "Region must lie within the World.");
+
+    this.regionX = x;
+    this.regionY = y;
+    this.regionWidth = width;
+    this.regionHeight = height;
+    this.queue = new int[width * height];
+    this.stamps = new int[width * height];
+  }
+
+  /**
+   * Fill outwards from a tile.
+   *
+   * @param start    The tile to start from; it is always visited
+   * @param limit    Stop once this many tiles have been visited
+   * @param passable Which neighboring tiles the fill may enter
+   * @return the number of tiles visited, at most {@code limit}
+   */
+  public int fill(final T start, final int limit, final Predicate<? super T> passable) {
+    checkArgument(contains(start), "Start tile must lie within the region.");
+
+    nextGeneration();
+
+    int head = 0;
+    int tail = 0;
+    final int startIndex = localIndex(start);
+    this.stamps[startIndex] = this.generation;
+    this.queue[tail++] = startIndex;
+
+    while (head < tail && tail < limit) {
+      T tile = getTileAt(this.queue[head++]);
+      for (int d = 0; d < DIRECTION_COUNT && tail < limit; d++) {
+        T next = tile.getNeighborCell(d);
+        if (next == null || !contains(next) || !passable.test(next)) {
+          continue;
+        }
+        int nextIndex = localIndex(next);
+        if (this.stamps[nextIndex] != this.generation) {
+          this.stamps[nextIndex] = this.generation;
+          this.queue[tail++] = nextIndex;
+        }
+      }
+    }
+
+    this.visitedCount = tail;
+    return tail;
+  }
+
+  /**
+   * Get the left edge of the region.
+   *
+   * @return the left edge
+   */
+  public int getRegionX() {
+    return this.regionX;
+  }
+
+  /**
+   * Get the top edge of the region.
+   *
+   * @return the top edge
+   */
+  public int getRegionY() {
+    return this.regionY;
+  }
+
+  /**
+   * Get the width of the region.
+   *
+   * @return the width
+   */
+  public int getRegionWidth() {
+    return this.regionWidth;
+  }
+
+  /**
+   * Get the height of the region.
+   *
+   * @return the height
+   */
+  public int getRegionHeight() {
+    return this.regionHeight;
+  }
+
+  /**
+   * Get the number of tiles visited by the last fill.
+   *
+   * @return the number of tiles
+   */
+  public int getVisitedCount() {
+    return this.visitedCount;
+  }
+
+  /**
+   * Get a tile visited by the last fill.
+   *
+   * @param n which tile, in the order they were reached
+   * @return the tile
+   */
+  public T getVisitedTile(final int n) {
+    checkVisited(n);
+    return getTileAt(this.queue[n]);
+  }
+
+  /**
+   * Get the World index ({@code y * worldWidth + x}) of a tile visited by the
+   * last fill.
+   *
+   * @param n which tile, in the order they were reached
+   * @return the World index of the tile
+   */
+  public int getVisitedIndex(final int n) {
+    checkVisited(n);
+    final int local = this.queue[n];
+    return (this.regionY + local / this.regionWidth) * this.world.getWidth() + this.regionX
+        + local % this.regionWidth;
+  }
+
+  /**
+   * Copy the World indices of the tiles visited by the last fill.
+   *
+   * @return a new array of World indices, in the order they were reached
+   */
+  public int[] toIndexArray() {
+    final int[] result = new int[this.visitedCount];
+    for (int n = 0; n < this.visitedCount; n++) {
+      result[n] = getVisitedIndex(n);
+    }
+    return result;
+  }
+
+  /**
+   * Check if a tile was visited by the last fill.
+   *
+   * @param tile a tile
+   * @return true if the last fill reached it
+   */
+  public boolean isVisited(final T tile) {
+    return this.visitedCount > 0 && contains(tile) && this.stamps[localIndex(tile)] == this.generation;
+  }
+
+  private void checkVisited(final int n) {
+    if (n < 0 || n >= this.visitedCount) {
+      throw new IndexOutOfBoundsException("Visited tile " + n + " of " + this.visitedCount);
+    }
+  }
+
+  private boolean contains(final T tile) {
+    final int x = tile.getX() - this.regionX;
+    final int y = tile.getY() - this.regionY;
+    return x >= 0 && x < this.regionWidth && y >= 0 && y < this.regionHeight;
+  }
+
+  private int localIndex(final T tile) {
+    return (tile.getY() - this.regionY) * this.regionWidth + tile.getX() - this.regionX;
+  }
+
+  private T getTileAt(final int local) {
+    return this.world.getMapTileUnchecked(this.regionX + local % this.regionWidth,
+        this.regionY + local / this.regionWidth);
+  }
+
+  private void nextGeneration() {
+    this.generation++;
+    if (this.generation == 0) {
+      // Stamps wrapped around; start over so no stale stamp looks current.
+      Arrays.fill(this.stamps, 0);
+      this.generation = 1;
+    }
+  }
+}
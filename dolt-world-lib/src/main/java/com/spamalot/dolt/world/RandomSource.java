@@ -0,0 +1,110 @@
+package com.spamalot.dolt.world;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A source of random numbers for World and Map generation. A seeded source
+ * always produces the same sequence, and {@link #split()} hands out
+ * independent streams that other threads can use without contention.
+ *
+ * @author gej
+ *
+ */
+public interface RandomSource {
+  /**
+   * Get a random int between zero (inclusive) and bound (exclusive).
+   *
+   * @param bound upper bound, must be positive
+   * @return a random int
+   */
+  int nextInt(int bound);
+
+  /**
+   * Get a random long.
+   *
+   * @return a random long
+   */
+  long nextLong();
+
+  /**
+   * Split off an independent source. The new source's sequence is determined
+   * by this source's state, so splitting a seeded source is reproducible.
+   *
+   * @return a new source
+   */
+  RandomSource split();
+
+  /**
+   * Create a reproducible source.
+   *
+   * @param seed the seed
+   * @return a source backed by a {@link SplittableRandom}
+   */
+  static RandomSource seeded(final long seed) {
+    return new SplittableRandomSource(new SplittableRandom(seed));
+  }
+
+  /**
+   * Get a source backed by the calling thread's {@link ThreadLocalRandom}.
+   * It is not reproducible, but it is fast and never contended.
+   *
+   * @return a shared source
+   */
+  static RandomSource threadLocal() {
+    return ThreadLocalRandomSource.INSTANCE;
+  }
+
+  /**
+   * A RandomSource backed by a SplittableRandom.
+   */
+  final class SplittableRandomSource implements RandomSource {
+    /** The generator. */
+    private final SplittableRandom random;
+
+    SplittableRandomSource(final SplittableRandom random) {
+      this.random = random;
+    }
+
+    @Override
+    public int nextInt(final int bound) {
+      return this.random.nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      return this.random.nextLong();
+    }
+
+    @Override
+    public RandomSource split() {
+      return new SplittableRandomSource(this.random.split());
+    }
+  }
+
+  /**
+   * A RandomSource backed by ThreadLocalRandom.
+   */
+  final class ThreadLocalRandomSource implements RandomSource {
+    /** The only instance. */
+    static final RandomSource INSTANCE = new ThreadLocalRandomSource();
+
+    private ThreadLocalRandomSource() {
+    }
+
+    @Override
+    public int nextInt(final int bound) {
+      return ThreadLocalRandom.current().nextInt(bound);
+    }
+
+    @Override
+    public long nextLong() {
+      return ThreadLocalRandom.current().nextLong();
+    }
+
+    @Override
+    public RandomSource split() {
+      return seeded(nextLong());
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package com.spamalot.dolt.world;
+
+/**
+ * Told which tiles of a World changed, in batches, when the World's changes
+ * are flushed.
+ *
+ * @author gej
+ *
+ */
+@FunctionalInterface
+public interface TileChangeListener {
+  /**
+   * Tiles changed since the last flush.
+   *
+   * @param changes the changed tiles and the chunks they are in
+   */
+  void tilesChanged(TileChanges changes);
+}
@@ -0,0 +1,110 @@
+package com.spamalot.dolt.world;
+
+/**
+ * One batch of changed tiles, and the square chunks of the World that hold
+ * them, so a consumer can redraw or rewrite only those.
+ *
+ * @author gej
+ *
+ */
+public final class TileChanges {
+  /** Width of the World. */
+  private final int worldWidth;
+
+  /** Side of a chunk in tiles. */
+  private final int chunkSize;
+
+  /** Number of chunks across the World. */
+  private final int chunksAcross;
+
+  /** World indices of the changed tiles, in ascending order. */
+  private final int[] tiles;
+
+  /** Ids of the changed chunks, in the order they first changed. */
+  private final int[] chunks;
+
+  TileChanges(final int worldWidth, final int chunkSize, final int[] tiles, final int[] chunks) {
+    this.worldWidth = worldWidth;
+    this.chunkSize = chunkSize;
+    this.chunksAcross = (worldWidth + chunkSize - 1) / chunkSize;
+    this.tiles = tiles;
+    this.chunks = chunks;
+  }
+
+  /**
+   * Get the number of changed tiles.
+   *
+   * @return the number of tiles
+   */
+  public int getTileCount() {
+    return this.tiles.length;
+  }
+
+  /**
+   * Get the World index, {@code y * width + x}, of a changed tile.
+   *
+   * @param n which changed tile
+   * @return its World index
+   */
+  public int getTileIndex(final int n) {
+    return this.tiles[n];
+  }
+
+  /**
+   * Get the horizontal coordinate of a changed tile.
+   *
+   * @param n which changed tile
+   * @return its horizontal coordinate
+   */
+  public int getTileX(final int n) {
+    return this.tiles[n] % this.worldWidth;
+  }
+
+  /**
+   * Get the vertical coordinate of a changed tile.
+   *
+   * @param n which changed tile
+   * @return its vertical coordinate
+   */
+  public int getTileY(final int n) {
+    return this.tiles[n] / this.worldWidth;
+  }
+
+  /**
+   * Get the side of a chunk in tiles.
+   *
+   * @return the chunk size
+   */
+  public int getChunkSize() {
+    return this.chunkSize;
+  }
+
+  /**
+   * Get the number of chunks with changed tiles.
+   *
+   * @return the number of chunks
+   */
+  public int getChunkCount() {
+    return this.chunks.length;
+  }
+
+  /**
+   * Get the left edge of a changed chunk.
+   *
+   * @param n which changed chunk
+   * @return horizontal coordinate of its left column
+   */
+  public int getChunkX(final int n) {
+    return this.chunks[n] % this.chunksAcross * this.chunkSize;
+  }
+
+  /**
+   * Get the top edge of a changed chunk.
+   *
+   * @param n which changed chunk
+   * @return vertical coordinate of its top row
+   */
+  public int getChunkY(final int n) {
+    return this.chunks[n] / this.chunksAcross * this.chunkSize;
+  }
+}
@@ -0,0 +1,167 @@
+package com.spamalot.dolt.world;
+
+/**
+ * How a {@link DoltWorld} arranges its tiles in memory. Tiles are also
+ * created in this order, so tiles next to each other in the layout tend to
+ * sit next to each other on the heap.
+ *
+ * @author gej
+ *
+ */
+public enum TileLayout {
+  /** Rows one after another. Row by row scans follow memory order. */
+  ROW_MAJOR {
+    @Override
+    int capacity(final int width, final int height) {
+      return width * height;
+    }
+
+    @Override
+    int slotOf(final int x, final int y, final int width, final int height) {
+      return y * width + x;
+    }
+
+    @Override
+    int xOf(final int slot, final int width, final int height) {
+      return slot % width;
+    }
+
+    @Override
+    int yOf(final int slot, final int width, final int height) {
+      return slot / width;
+    }
+  },
+
+  /** Columns one after another, the way DoltWorld always used to be. */
+  COLUMN_MAJOR {
+    @Override
+    int capacity(final int width, final int height) {
+      return width * height;
+    }
+
+    @Override
+    int slotOf(final int x, final int y, final int width, final int height) {
+      return x * height + y;
+    }
+
+    @Override
+    int xOf(final int slot, final int width, final int height) {
+      return slot / height;
+    }
+
+    @Override
+    int yOf(final int slot, final int width, final int height) {
+      return slot % height;
+    }
+  },
+
+  /**
+   * Blocks of {@value #BLOCK_SIZE} by {@value #BLOCK_SIZE} tiles, one row of
+   * blocks after another, with the tiles inside a block in Morton order. A
+   * neighborhood of tiles spans few cache lines whichever way it is walked,
+   * which suits flood fills. The last row and column of blocks is padded
+   * when the World is not a multiple of the block size.
+   */
+  Z_ORDER {
+    @Override
+    int capacity(final int width, final int height) {
+      final long blocks = (long) blocksAcross(width) * ((height + BLOCK_SIZE - 1) >>> BLOCK_SHIFT);
+      if (blocks * BLOCK_TILES > Integer.MAX_VALUE) {
+        throw new IllegalArgumentException("World is too large to index.");
+      }
+      return (int) blocks * BLOCK_TILES;
+    }
+
+    @Override
+    int slotOf(final int x, final int y, final int width, final int height) {
+      final int block = (y >>> BLOCK_SHIFT) * blocksAcross(width) + (x >>> BLOCK_SHIFT);
+      return block << (2 * BLOCK_SHIFT) | spread(x & BLOCK_MASK) | spread(y & BLOCK_MASK) << 1;
+    }
+
+    @Override
+    int xOf(final int slot, final int width, final int height) {
+      return (slot >>> (2 * BLOCK_SHIFT)) % blocksAcross(width) << BLOCK_SHIFT | compact(slot);
+    }
+
+    @Override
+    int yOf(final int slot, final int width, final int height) {
+      return (slot >>> (2 * BLOCK_SHIFT)) / blocksAcross(width) << BLOCK_SHIFT | compact(slot >>> 1);
+    }
+  };
+
+  /** Side of a {@link #Z_ORDER} block in tiles. */
+  public static final int BLOCK_SIZE = 8;
+
+  /** Shift from a coordinate to a block coordinate. */
+  private static final int BLOCK_SHIFT = 3;
+
+  /** Mask from a coordinate to a coordinate inside its block. */
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  /** Tiles in a block. */
+  private static final int BLOCK_TILES = BLOCK_SIZE * BLOCK_SIZE;
+
+  /**
+   * Get the number of slots needed, padding included.
+   *
+   * @param width  Width of the World
+   * @param height Height of the World
+   * @return the number of slots
+   */
+  abstract int capacity(int width, int height);
+
+  /**
+   * Get the slot of a tile.
+   *
+   * @param x      Horizontal coordinate
+   * @param y      Vertical coordinate
+   * @param width  Width of the World
+   * @param height Height of the World
+   * @return the slot
+   */
+  abstract int slotOf(int x, int y, int width, int height);
+
+  /**
+   * Get the horizontal coordinate of a slot. May be off the World for padding.
+   *
+   * @param slot   the slot
+   * @param width  Width of the World
+   * @param height Height of the World
+   * @return the horizontal coordinate
+   */
+  abstract int xOf(int slot, int width, int height);
+
+  /**
+   * Get the vertical coordinate of a slot. May be off the World for padding.
+   *
+   * @param slot   the slot
+   * @param width  Width of the World
+   * @param height Height of the World
+   * @return the vertical coordinate
+   */
+  abstract int yOf(int slot, int width, int height);
+
+  private static int blocksAcross(final int width) {
+    return (width + BLOCK_MASK) >>> BLOCK_SHIFT;
+  }
+
+  /**
+   * Spread the low three bits of a value to bits 0, 2 and 4.
+   *
+   * @param v the value
+   * @return the spread bits
+   */
+  private static int spread(final int v) {
+    return v & 1 | (v & 2) << 1 | (v & 4) << 2;
+  }
+
+  /**
+   * Gather bits 0, 2 and 4 of a value into its low three bits.
+   *
+   * @param v the value
+   * @return the gathered bits
+   */
+  private static int compact(final int v) {
+    return v & 1 | (v >>> 1) & 2 | (v >>> 2) & 4;
+  }
+}
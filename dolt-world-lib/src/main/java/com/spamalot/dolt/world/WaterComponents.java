@@ -0,0 +1,400 @@
+package com.spamalot.dolt.world;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.spamalot.dolt.world.grid.Direction;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.function.Predicate;
+
+/**
+ * Connected bodies of water in a region of a DoltWorld, with their sizes,
+ * kept up to date as tiles change type.
+ *
+ * <p>
+ * Every water tile carries a label, and labels are grouped with union-find,
+ * so all tiles of one body of water share a root label. The size stored at
+ * the root is exact while the body is clean. Turning a tile into land might
+ * split its body, which union-find cannot undo. If the water among the
+ * tile's eight neighbors is still joined up around it, the body cannot have
+ * split and only shrinks. Otherwise a capped flood fill from each side either
+ * finds the sides joined again, or finds the smaller pieces whole and gives
+ * them fresh labels. Only when that is not enough does the body become
+ * dirty: its size is kept as an upper bound. Turning a tile into water joins
+ * the bodies around it.
+ *
+ * <p>
+ * {@link #countAvailable(WorldTile, int)} answers from the size when the body
+ * is clean. For a dirty body it runs a capped flood fill; if the fill finds
+ * the whole body, that body gets a fresh clean label, so the next question
+ * about it is a lookup again.
+ *
+ * <p>
+ * An instance is not thread safe; use one per thread and region.
+ *
+ * @author gej
+ *
+ * @param <T> A tile type
+ */
+public final class WaterComponents<T extends WorldTile<T>> {
+  /** Number of Directions a tile has neighbors in. */
+  private static final int DIRECTION_COUNT = Direction.values().length;
+
+  /** Horizontal steps to the eight neighbors, clockwise from straight up. */
+  private static final int[] RING_X = { 0, 1, 1, 1, 0, -1, -1, -1 };
+
+  /** Vertical steps to the eight neighbors, clockwise from straight up. */
+  private static final int[] RING_Y = { -1, -1, 0, 1, 1, 1, 0, -1 };
+
+  /** Directions of the straight neighbors, in {@link #RING_X} order. */
+  private static final Direction[] RING_DIRECTIONS = { Direction.UP, Direction.RIGHT, Direction.DOWN,
+      Direction.LEFT };
+
+  /** Most tiles to fill when checking if a body split. */
+  private static final int SPLIT_CHECK_LIMIT = 256;
+
+  /** Label of a tile that is not water. */
+  private static final int NO_LABEL = -1;
+
+  /** Which tiles count as water. */
+  private static final Predicate<WorldTile<?>> IS_WATER = t -> t.getType() == WorldTileType.WATER;
+
+  /** Flood fill engine covering the same region. */
+  private final FloodFill<T> floodFill;
+
+  /** Left edge of the region. */
+  private final int regionX;
+
+  /** Top edge of the region. */
+  private final int regionY;
+
+  /** Width of the region. */
+  private final int regionWidth;
+
+  /** Height of the region. */
+  private final int regionHeight;
+
+  /** Label of each tile in the region. */
+  private final int[] tileLabels;
+
+  /** Union-find parent of each label. */
+  private int[] labelParents = new int[64];
+
+  /** Size, or upper bound on the size, of the body rooted at each label. */
+  private int[] labelSizes = new int[64];
+
+  /** Root labels whose size is only an upper bound. */
+  private final BitSet dirty = new BitSet();
+
+  /** Number of labels handed out. */
+  private int labelCount;
+
+  /** Whether the last count needed a flood fill. */
+  private boolean lastCountFlooded;
+
+  /**
+   * Label the water in the region a flood fill engine covers.
+   *
+   * @param world     the World
+   * @param floodFill flood fill engine, shared with the caller
+   */
+  public WaterComponents(final DoltWorld<T> world, final FloodFill<T> floodFill) {
+    this.floodFill = checkNotNull(floodFill);
+    this.regionX = floodFill.getRegionX();
+    this.regionY = floodFill.getRegionY();
+    this.regionWidth = floodFill.getRegionWidth();
+    this.regionHeight = floodFill.getRegionHeight();
+    this.tileLabels = new int[this.regionWidth * this.regionHeight];
+
+    // Two pass labeling: give each water tile the label of its left or upper
+    // water neighbor, join the two when both exist, then count.
+    for (int y = 0; y < this.regionHeight; y++) {
+      for (int x = 0; x < this.regionWidth; x++) {
+        final int local = y * this.regionWidth + x;
+        if (world.getMapTileUnchecked(this.regionX + x, this.regionY + y).getType() != WorldTileType.WATER) {
+          this.tileLabels[local] = NO_LABEL;
+          continue;
+        }
+        final int left = x > 0 ? this.tileLabels[local - 1] : NO_LABEL;
+        final int up = y > 0 ? this.tileLabels[local - this.regionWidth] : NO_LABEL;
+        if (left == NO_LABEL && up == NO_LABEL) {
+          this.tileLabels[local] = newLabel(0);
+        } else if (left == NO_LABEL) {
+          this.tileLabels[local] = up;
+        } else {
+          this.tileLabels[local] = left;
+          if (up != NO_LABEL) {
+            union(left, up);
+          }
+        }
+      }
+    }
+    for (int local = 0; local < this.tileLabels.length; local++) {
+      if (this.tileLabels[local] != NO_LABEL) {
+        this.labelSizes[find(this.tileLabels[local])]++;
+      }
+    }
+  }
+
+  /**
+   * Count the water tiles connected to a tile, stopping at a limit. The tile
+   * itself counts even if it is not water.
+   *
+   * @param tile  a tile in the region
+   * @param limit stop counting here
+   * @return the number of connected water tiles, at most {@code limit}
+   */
+  public int countAvailable(final T tile, final int limit) {
+    final int label = this.tileLabels[localIndex(tile)];
+    if (label != NO_LABEL) {
+      final int root = find(label);
+      if (!this.dirty.get(root)) {
+        this.lastCountFlooded = false;
+        return Math.min(this.labelSizes[root], limit);
+      }
+    }
+
+    this.lastCountFlooded = true;
+    final int count = this.floodFill.fill(tile, limit, IS_WATER);
+    if (count < limit && label != NO_LABEL) {
+      // The fill found the whole body; give it a fresh, exact label.
+      final int root = find(label);
+      final int fresh = newLabel(count);
+      for (int n = 0; n < count; n++) {
+        this.tileLabels[localIndex(this.floodFill.getVisitedTile(n))] = fresh;
+      }
+      this.labelSizes[root] = Math.max(0, this.labelSizes[root] - count);
+    }
+    return count;
+  }
+
+  /**
+   * Check if the last {@link #countAvailable(WorldTile, int)} had to flood
+   * fill. If so, the flood fill engine holds the tiles it counted.
+   *
+   * @return true if the last count ran a flood fill
+   */
+  public boolean wasLastCountFlooded() {
+    return this.lastCountFlooded;
+  }
+
+  /**
+   * Get the id of the body of water a tile belongs to. Ids change when a
+   * body is relabeled.
+   *
+   * @param tile a tile in the region
+   * @return the id, or -1 if the tile is not water
+   */
+  public int getComponentId(final T tile) {
+    final int label = this.tileLabels[localIndex(tile)];
+    return label == NO_LABEL ? NO_LABEL : find(label);
+  }
+
+  /**
+   * Check if the size of a tile's body of water is known exactly.
+   *
+   * @param tile a water tile in the region
+   * @return true if the size is exact, false if it is an upper bound
+   */
+  public boolean isExact(final T tile) {
+    final int label = this.tileLabels[localIndex(tile)];
+    return label != NO_LABEL && !this.dirty.get(find(label));
+  }
+
+  /**
+   * Get the size of a tile's body of water.
+   *
+   * @param tile a water tile in the region
+   * @return the size, exact if {@link #isExact(WorldTile)}, else an upper bound
+   */
+  public int getComponentSize(final T tile) {
+    final int label = this.tileLabels[localIndex(tile)];
+    return label == NO_LABEL ? 0 : this.labelSizes[find(label)];
+  }
+
+  /**
+   * Tell the labeling that a water tile became land. This may run the flood
+   * fill engine.
+   *
+   * @param tile the tile
+   */
+  public void tileBecameLand(final T tile) {
+    if (!contains(tile)) {
+      return;
+    }
+    final int local = localIndex(tile);
+    final int label = this.tileLabels[local];
+    if (label != NO_LABEL) {
+      final int root = find(label);
+      this.labelSizes[root]--;
+      this.tileLabels[local] = NO_LABEL;
+      if (this.dirty.get(root)) {
+        return;
+      }
+      final int groups = groupsAround(tile.getX() - this.regionX, tile.getY() - this.regionY);
+      if (Integer.bitCount(groups) > 1 && !settleSplit(tile, groups, root)) {
+        this.dirty.set(root);
+      }
+    }
+  }
+
+  /**
+   * Find the groups the water next to a tile forms among the tile's eight
+   * neighbors, without the tile. Water that is one group here stays joined
+   * whatever the tile becomes.
+   *
+   * @param x horizontal coordinate in the region
+   * @param y vertical coordinate in the region
+   * @return one bit per group, at the {@link #RING_X} index of a straight
+   *         neighbor in it
+   */
+  private int groupsAround(final int x, final int y) {
+    int ring = 0;
+    for (int i = 0; i < RING_X.length; i++) {
+      if (isWaterAt(x + RING_X[i], y + RING_Y[i])) {
+        ring |= 1 << i;
+      }
+    }
+    // Walk the straight neighbors clockwise; each one that is water and not
+    // joined to the previous one through the corner between them starts a
+    // new group.
+    int groups = 0;
+    for (int i = 0; i < RING_X.length; i += 2) {
+      if ((ring & 1 << i) != 0 && ((ring & 1 << ((i + 7) & 7)) == 0 || (ring & 1 << ((i + 6) & 7)) == 0)) {
+        groups |= 1 << i;
+      }
+    }
+    return groups;
+  }
+
+  /**
+   * Work out whether a body that lost a tile split, with a capped flood fill
+   * from each group of water around the tile. A fill that finishes below the
+   * cap found a whole piece; unless that is everything left, the piece gets a
+   * fresh, exact label. A fill that reaches the other groups shows they are
+   * still joined.
+   *
+   * @param tile   the tile that became land
+   * @param groups the groups around it, from {@link #groupsAround(int, int)}
+   * @param root   root label of the body
+   * @return true if the size at the root is still exact
+   */
+  private boolean settleSplit(final T tile, final int groups, final int root) {
+    int open = groups;
+    // Groups reached by each fill that hit the cap, eight bits per fill.
+    int capped = 0;
+    int cappedFills = 0;
+    int joined = 0;
+    for (int i = 0; i < RING_X.length; i += 2) {
+      if ((open & 1 << i) == 0 || (joined & 1 << i) != 0) {
+        continue;
+      }
+      final int count = this.floodFill.fill(tile.get(RING_DIRECTIONS[i / 2]), SPLIT_CHECK_LIMIT, IS_WATER);
+      int reached = 0;
+      for (int j = 0; j < RING_X.length; j += 2) {
+        if ((open & 1 << j) != 0 && this.floodFill.isVisited(tile.get(RING_DIRECTIONS[j / 2]))) {
+          reached |= 1 << j;
+        }
+      }
+      if (reached == open) {
+        return true;
+      }
+      if (count < SPLIT_CHECK_LIMIT) {
+        final int fresh = newLabel(count);
+        for (int n = 0; n < count; n++) {
+          this.tileLabels[localIndex(this.floodFill.getVisitedTile(n))] = fresh;
+        }
+        this.labelSizes[root] -= count;
+        open &= ~reached;
+        if (Integer.bitCount(open) == 1) {
+          return true;
+        }
+        for (int f = 0; f < cappedFills; f++) {
+          if ((open & ~(capped >>> 8 * f)) == 0) {
+            return true;
+          }
+        }
+      } else {
+        capped |= reached << 8 * cappedFills++;
+        joined |= reached;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Tell the labeling that a land tile became water.
+   *
+   * @param tile the tile
+   */
+  public void tileBecameWater(final T tile) {
+    if (!contains(tile)) {
+      return;
+    }
+    final int local = localIndex(tile);
+    if (this.tileLabels[local] != NO_LABEL) {
+      return;
+    }
+    int label = newLabel(1);
+    this.tileLabels[local] = label;
+    for (int d = 0; d < DIRECTION_COUNT; d++) {
+      T next = tile.getNeighborCell(d);
+      if (next != null && contains(next)) {
+        final int other = this.tileLabels[localIndex(next)];
+        if (other != NO_LABEL) {
+          label = union(label, other);
+        }
+      }
+    }
+  }
+
+  private int newLabel(final int size) {
+    if (this.labelCount == this.labelParents.length) {
+      this.labelParents = Arrays.copyOf(this.labelParents, this.labelCount * 2);
+      this.labelSizes = Arrays.copyOf(this.labelSizes, this.labelCount * 2);
+    }
+    this.labelParents[this.labelCount] = this.labelCount;
+    this.labelSizes[this.labelCount] = size;
+    return this.labelCount++;
+  }
+
+  private int find(final int label) {
+    int l = label;
+    while (this.labelParents[l] != l) {
+      this.labelParents[l] = this.labelParents[this.labelParents[l]];
+      l = this.labelParents[l];
+    }
+    return l;
+  }
+
+  private int union(final int a, final int b) {
+    final int rootA = find(a);
+    final int rootB = find(b);
+    if (rootA == rootB) {
+      return rootA;
+    }
+    final int root = Math.min(rootA, rootB);
+    final int child = Math.max(rootA, rootB);
+    this.labelParents[child] = root;
+    this.labelSizes[root] += this.labelSizes[child];
+    if (this.dirty.get(child)) {
+      this.dirty.set(root);
+    }
+    return root;
+  }
+
+  private boolean isWaterAt(final int x, final int y) {
+    return x >= 0 && x < this.regionWidth && y >= 0 && y < this.regionHeight
+        && this.tileLabels[y * this.regionWidth + x] != NO_LABEL;
+  }
+
+  private boolean contains(final T tile) {
+    final int x = tile.getX() - this.regionX;
+    final int y = tile.getY() - this.regionY;
+    return x >= 0 && x < this.regionWidth && y >= 0 && y < this.regionHeight;
+  }
+
+  private int localIndex(final T tile) {
+    return (tile.getY() - this.regionY) * this.regionWidth + tile.getX() - this.regionX;
+  }
+}
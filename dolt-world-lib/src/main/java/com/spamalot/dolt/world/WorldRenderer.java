@@ -0,0 +1,192 @@
+package com.spamalot.dolt.world;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.function.ToIntFunction;
+
+/**
+ * Render a DoltWorld as ASCII art, one row at a time. Nothing is buffered
+ * beyond the Writer's own buffer, so rendering takes the same memory for any
+ * size of World.
+ *
+ * <p>
+ * A renderer can be limited to a viewport and can color tiles with ANSI
+ * background colors picked from a per-tile key, such as a territory id.
+ *
+ * @author gej
+ *
+ * @param <T> A tile type
+ */
+public final class WorldRenderer<T extends WorldTile<T>> {
+  /** Number of ANSI 256 palette colors used for keys. */
+  private static final int PALETTE_SIZE = 216;
+
+  /** Step between the palette colors of consecutive keys. */
+  private static final long PALETTE_STRIDE = 37;
+
+  /** First ANSI 256 palette color used for keys. */
+  private static final int PALETTE_START = 16;
+
+  /** Escape sequence to select each palette color as background. */
+  private static final String[] BACKGROUNDS = new String[PALETTE_SIZE];
+
+  /** Escape sequence to go back to the default colors. */
+  private static final String RESET = "\u001B[0m";
+
+  static {
+    for (int i = 0; i < PALETTE_SIZE; i++) {
+      BACKGROUNDS[i] = "\u001B[48;5;" + (PALETTE_START + i) + "m";
+    }
+  }
+
+  /** Left edge of the viewport. */
+  private int viewX;
+
+  /** Top edge of the viewport. */
+  private int viewY;
+
+  /** Width of the viewport. */
+  private int viewWidth = Integer.MAX_VALUE;
+
+  /** Height of the viewport. */
+  private int viewHeight = Integer.MAX_VALUE;
+
+  /** Color key of each tile; negative means no color. Null for no colors. */
+  private ToIntFunction<? super T> colorKey;
+
+  /**
+   * Only render part of the World. Parts of the viewport off the World are
+   * ignored.
+   *
+   * @param x      Left edge
+   * @param y      Top edge
+   * @param width  Width
+   * @param height Height
+   * @return this renderer
+   */
+  public WorldRenderer<T> setViewport(final int x, final int y, final int width, final int height) {
+    checkArgument(width >= 0 && height >= 0, "Viewport size must not be negative.");
+    this.viewX = x;
+    this.viewY = y;
+    this.viewWidth = width;
+    this.viewHeight = height;
+    return this;
+  }
+
+  /**
+   * Color tiles by key. Tiles with the same key get the same background
+   * color; tiles with a negative key are not colored.
+   *
+   * @param key color key of a tile, or null to turn coloring off
+   * @return this renderer
+   */
+  public WorldRenderer<T> setColorKey(final ToIntFunction<? super T> key) {
+    this.colorKey = key;
+    return this;
+  }
+
+  /**
+   * Render to a String. Only sensible for small Worlds or viewports.
+   *
+   * @param world the World
+   * @return the rendering
+   */
+  public String renderToString(final DoltWorld<T> world) {
+    final StringWriter out = new StringWriter();
+    try {
+      render(world, out);
+    } catch (IOException e) {
+      // StringWriter does not throw.
+      throw new UncheckedIOException(e);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Render to a stream as UTF-8. The stream is flushed but not closed.
+   *
+   * @param world the World
+   * @param out   the stream
+   * @throws IOException if writing fails
+   */
+  public void render(final DoltWorld<T> world, final OutputStream out) throws IOException {
+    final Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    render(world, writer);
+    writer.flush();
+  }
+
+  /**
+   * Render to a channel as UTF-8. The channel is not closed.
+   *
+   * @param world   the World
+   * @param channel the channel
+   * @throws IOException if writing fails
+   */
+  public void render(final DoltWorld<T> world, final WritableByteChannel channel) throws IOException {
+    final Writer writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), -1));
+    render(world, writer);
+    writer.flush();
+  }
+
+  /**
+   * Render to a Writer, a row at a time. The Writer is neither flushed nor
+   * closed; wrap unbuffered Writers in a BufferedWriter.
+   *
+   * @param world the World
+   * @param out   the Writer
+   * @throws IOException if writing fails
+   */
+  public void render(final DoltWorld<T> world, final Writer out) throws IOException {
+    final int left = Math.max(0, this.viewX);
+    final int top = Math.max(0, this.viewY);
+    final int right = (int) Math.min(world.getWidth(), (long) this.viewX + this.viewWidth);
+    final int bottom = (int) Math.min(world.getHeight(), (long) this.viewY + this.viewHeight);
+    if (left >= right || top >= bottom) {
+      // Nothing of the World is in view.
+      writeBorder(out, left, left);
+      return;
+    }
+
+    writeBorder(out, left, right);
+    for (int y = top; y < bottom; y++) {
+      out.write('|');
+      for (int x = left; x < right; x++) {
+        writeTile(out, world.getMapTileUnchecked(x, y));
+        out.write('|');
+      }
+      out.write('\n');
+      writeBorder(out, left, right);
+    }
+  }
+
+  private void writeTile(final Writer out, final T tile) throws IOException {
+    final int key = this.colorKey == null ? -1 : this.colorKey.applyAsInt(tile);
+    if (key < 0) {
+      out.write(tile.toString());
+    } else {
+      // Spread consecutive keys around the palette so neighbors stand apart,
+      // and skip black for key zero.
+      out.write(BACKGROUNDS[(int) ((key + 1L) * PALETTE_STRIDE % PALETTE_SIZE)]);
+      out.write(tile.toString());
+      out.write(RESET);
+    }
+  }
+
+  private static void writeBorder(final Writer out, final int left, final int right) throws IOException {
+    out.write('+');
+    for (int x = left; x < right; x++) {
+      out.write("-+");
+    }
+    out.write('\n');
+  }
+}
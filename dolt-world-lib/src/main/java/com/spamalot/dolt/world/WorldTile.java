@@ -1,9 +1,10 @@
 package com.spamalot.dolt.world;
 
+import com.spamalot.dolt.world.grid.Direction;
 import com.spamalot.dolt.world.grid.QuadGridCell;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.function.Consumer;
 
 /**
  * Base Tile.
@@ -12,28 +13,72 @@ import java.util.Random;
  *
  */
 public class WorldTile<T extends WorldTile<T>> extends QuadGridCell<T> {
-  /** Hold a static Random Number Generator for efficiency. */
-  private static final Random RNG = new Random();
+  /** Number of Directions a tile has neighbors in. */
+  private static final int DIRECTION_COUNT = Direction.values().length;
 
   /** The MapTileType of this MapTile. */
   private WorldTileType tileType;
 
+  /** Horizontal coordinate of this tile in its World. */
+  private int tileX;
+
+  /** Vertical coordinate of this tile in its World. */
+  private int tileY;
+
+  /** Where to report changes, or null if nobody listens. */
+  private DirtyTracker changeTracker;
+
   /**
-   * List of Adjacent MapTiles that are water.
+   * List of Adjacent MapTiles that are water. This is a convenience wrapper
+   * around {@link #getAdjacentWaterMask()}; hot paths should use the mask or
+   * {@link #forEachAdjacentWaterTile(Consumer)} instead.
    * 
    * @return List of adjacent MapTiles that are water
    */
   public List<T> getAdjacentWaterTiles() {
-    List<T> p = new ArrayList<>();
-    for (T x : this.getAllNeighborCells()) {
-      if (x.getType() == WorldTileType.WATER) {
-        p.add(x);
+    final int mask = getAdjacentWaterMask();
+    List<T> p = new ArrayList<>(Integer.bitCount(mask));
+    for (int d = 0; d < DIRECTION_COUNT; d++) {
+      if ((mask & (1 << d)) != 0) {
+        p.add(getNeighborCell(d));
       }
     }
 
     return p;
   }
 
+  /**
+   * Get the adjacent water tiles as a bit mask. Bit {@code n} is set if the
+   * neighbor in the Direction with ordinal {@code n} is water.
+   * 
+   * @return the water neighbor mask
+   */
+  public int getAdjacentWaterMask() {
+    int mask = 0;
+    for (int d = 0; d < DIRECTION_COUNT; d++) {
+      T x = getNeighborCell(d);
+      if (x != null && x.getType() == WorldTileType.WATER) {
+        mask |= 1 << d;
+      }
+    }
+
+    return mask;
+  }
+
+  /**
+   * Visit each adjacent tile that is water without allocating a List.
+   * 
+   * @param action what to do with each adjacent water tile
+   */
+  public void forEachAdjacentWaterTile(final Consumer<? super T> action) {
+    for (int d = 0; d < DIRECTION_COUNT; d++) {
+      T x = getNeighborCell(d);
+      if (x != null && x.getType() == WorldTileType.WATER) {
+        action.accept(x);
+      }
+    }
+  }
+
   private WorldTile(WorldTileType tileType) {
     super();
     this.tileType = tileType;
@@ -44,21 +89,95 @@ public class WorldTile<T extends WorldTile<T>> extends QuadGridCell<T> {
   }
 
   /**
-   * Return a random water MapTile.
+   * Return a random water MapTile using the calling thread's random source.
    * 
    * @return a MapTile with water, or null if there is none
    */
   public T getRandomAdjacentWaterTile() {
+    return getRandomAdjacentWaterTile(RandomSource.threadLocal());
+  }
+
+  /**
+   * Return a random water MapTile.
+   * 
+   * @param rng where to get randomness from
+   * @return a MapTile with water, or null if there is none
+   */
+  public T getRandomAdjacentWaterTile(final RandomSource rng) {
     T ret = null;
-    List<T> waterList = getAdjacentWaterTiles();
-    if (!waterList.isEmpty()) {
+    final int mask = getAdjacentWaterMask();
+    if (mask != 0) {
 
-      final int index = RNG.nextInt(waterList.size());
-      ret = waterList.get(index);
+      final int index = rng.nextInt(Integer.bitCount(mask));
+      ret = getNeighborCell(nthSetBit(mask, index));
     }
     return ret;
   }
 
+  /**
+   * Find the position of a set bit.
+   * 
+   * @param mask a bit mask
+   * @param n    which set bit to find, counting from zero
+   * @return the position of the {@code n}th lowest set bit
+   */
+  private static int nthSetBit(final int mask, final int n) {
+    int bits = mask;
+    for (int i = 0; i < n; i++) {
+      bits &= bits - 1;
+    }
+    return Integer.numberOfTrailingZeros(bits);
+  }
+
+  /**
+   * Get the horizontal coordinate of this tile in its World.
+   * 
+   * @return the horizontal coordinate
+   */
+  public int getX() {
+    return tileX;
+  }
+
+  /**
+   * Get the vertical coordinate of this tile in its World.
+   * 
+   * @return the vertical coordinate
+   */
+  public int getY() {
+    return tileY;
+  }
+
+  /**
+   * Record where this tile sits in its World.
+   * 
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   */
+  void setLocation(final int x, final int y) {
+    tileX = x;
+    tileY = y;
+  }
+
+  /**
+   * Start or stop reporting changes.
+   * 
+   * @param tracker where to report changes, or null to stop
+   */
+  void setChangeTracker(final DirtyTracker tracker) {
+    changeTracker = tracker;
+  }
+
+  /**
+   * Report that this tile changed to whoever listens to its World. Subclasses
+   * call this from their own setters.
+   */
+  protected final void markChanged() {
+    final DirtyTracker tracker = changeTracker;
+    if (tracker != null) {
+      tracker.markDirty(tileX, tileY);
+    }
+  }
+
   /**
    * Get this MapTile's Type.
    * 
@@ -75,6 +194,7 @@ public class WorldTile<T extends WorldTile<T>> extends QuadGridCell<T> {
    */
   public void setType(final WorldTileType type) {
     tileType = type;
+    markChanged();
   }
 
   /**
@@ -1,9 +1,5 @@
 package com.spamalot.dolt.world.grid;
 
-import java.util.Collection;
-import java.util.EnumMap;
-import java.util.Map;
-
 /**
  * Link logic for cells.
  * 
@@ -12,8 +8,11 @@ import java.util.Map;
  * @param <T> Cell class
  */
 abstract class AbstractGridCell<T> {
-  /** Cells that link to this one. */
-  private final Map<Direction, T> neighborCells = new EnumMap<>(Direction.class);
+  /** Number of Directions a cell can link in. */
+  static final int DIRECTION_COUNT = Direction.values().length;
+
+  /** Cells that link to this one, indexed by Direction ordinal. */
+  private final Object[] neighborCells = new Object[DIRECTION_COUNT];
 
   /**
    * Link a Cell to this one.
@@ -23,7 +22,7 @@ abstract class AbstractGridCell<T> {
    */
   public void linkCellInDirection(final Direction dir, final T cell) {
     if (cell != null && isValidDirection(dir)) {
-      this.neighborCells.put(dir, cell);
+      this.neighborCells[dir.ordinal()] = cell;
     }
   }
 
@@ -34,11 +33,36 @@ abstract class AbstractGridCell<T> {
    * @return Cell in that Direction.
    */
   public final T get(final Direction dir) {
-    return this.neighborCells.get(dir);
+    return getNeighborCell(dir.ordinal());
   }
 
-  protected final Collection<T> getAllNeighborCells() {
-    return this.neighborCells.values();
+  /**
+   * Get a Cell by Direction ordinal. This is the allocation free way to walk
+   * all the neighbors of a cell.
+   * 
+   * @param ordinal ordinal of a Direction
+   * @return Cell in that Direction, or null if none is linked
+   */
+  @SuppressWarnings("unchecked")
+  public final T getNeighborCell(final int ordinal) {
+    return (T) this.neighborCells[ordinal];
+  }
+
+  /**
+   * Get which Directions have a linked Cell. Bit {@code n} is set if there is a
+   * Cell in the Direction with ordinal {@code n}; walk them with
+   * {@link #getNeighborCell(int)}.
+   * 
+   * @return the linked neighbor mask
+   */
+  public final int getNeighborMask() {
+    int mask = 0;
+    for (int d = 0; d < DIRECTION_COUNT; d++) {
+      if (this.neighborCells[d] != null) {
+        mask |= 1 << d;
+      }
+    }
+    return mask;
   }
 
   abstract boolean isValidDirection(Direction dir);
@@ -1,8 +1,5 @@
 package com.spamalot.dolt.world.grid;
 
-import com.google.common.collect.Sets;
-import java.util.HashSet;
-
 /**
  * Orthogonally linked cells.
  * 
@@ -11,20 +8,17 @@ import java.util.HashSet;
  * @param <T> Cell class
  */
 public class QuadGridCell<T> extends AbstractGridCell<T> {
-  /** Set of allowed directions. */
-  private static HashSet<Direction> allowedDirections;
+  /** Bit mask of allowed directions, one bit per Direction ordinal. */
+  private static final int ALLOWED_DIRECTIONS = (1 << Direction.DOWN.ordinal()) | (1 << Direction.LEFT.ordinal())
+      | (1 << Direction.RIGHT.ordinal()) | (1 << Direction.UP.ordinal());
 
   /** Handle a cell that links Orthogonally. */
   public QuadGridCell() {
     super();
-
-    if (allowedDirections == null) {
-      allowedDirections = Sets.newHashSet(Direction.values());
-    }
   }
 
   @Override
   final boolean isValidDirection(final Direction dir) {
-    return allowedDirections.contains(dir);
+    return (ALLOWED_DIRECTIONS & (1 << dir.ordinal())) != 0;
   }
 }
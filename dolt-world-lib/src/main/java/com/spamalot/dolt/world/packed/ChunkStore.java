@@ -0,0 +1,35 @@
+package com.spamalot.dolt.world.packed;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Where a {@link ChunkedDoltWorld} keeps the chunks it is not holding in
+ * memory.
+ *
+ * @author gej
+ *
+ */
+public interface ChunkStore extends Closeable {
+  /**
+   * Read a chunk back.
+   *
+   * @param chunk        id of the chunk
+   * @param cells        filled with the type ordinal and off limits flag of
+   *                     each tile
+   * @param territoryIds filled with the territory id of each tile
+   * @return false if the chunk was never stored, leaving the arrays alone
+   * @throws IOException if reading fails
+   */
+  boolean load(int chunk, byte[] cells, int[] territoryIds) throws IOException;
+
+  /**
+   * Write a chunk out.
+   *
+   * @param chunk        id of the chunk
+   * @param cells        type ordinal and off limits flag of each tile
+   * @param territoryIds territory id of each tile
+   * @throws IOException if writing fails
+   */
+  void store(int chunk, byte[] cells, int[] territoryIds) throws IOException;
+}
@@ -0,0 +1,257 @@
+package com.spamalot.dolt.world.packed;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.spamalot.dolt.world.WorldTileType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A World split into square chunks of {@value #CHUNK_SIZE} by
+ * {@value #CHUNK_SIZE} tiles. Chunks are loaded from a {@link ChunkStore} when
+ * a tile in them is touched, and the least recently used chunk is written
+ * back once more than a fixed number are in memory, so the size of the World
+ * is limited by disk rather than heap.
+ *
+ * <p>
+ * Tiles are reached by coordinate like any {@link PackedWorld}, so
+ * {@link PackedTile#get(com.spamalot.dolt.world.grid.Direction)} crosses chunk
+ * borders without the caller noticing. Nearby access is cheap; jumping around
+ * a World much bigger than the cache is not.
+ *
+ * <p>
+ * This bounds the memory needed to hold and query a continent scale World,
+ * not to generate one: territory generation runs on linked
+ * {@link com.spamalot.dolt.world.WorldTile} objects in a
+ * {@link com.spamalot.dolt.world.DoltWorld}, which must fit in the heap.
+ * Traversal here goes through {@link PackedTile}, not WorldTile.
+ *
+ * <p>
+ * A ChunkedDoltWorld is not thread safe.
+ *
+ * @author gej
+ *
+ */
+public final class ChunkedDoltWorld implements PackedWorld, Closeable {
+  /** Side of a chunk in tiles. */
+  public static final int CHUNK_SIZE = 64;
+
+  /** Tiles in a chunk. */
+  public static final int TILES_PER_CHUNK = CHUNK_SIZE * CHUNK_SIZE;
+
+  /** Shift from a coordinate to a chunk coordinate. */
+  private static final int CHUNK_SHIFT = Integer.numberOfTrailingZeros(CHUNK_SIZE);
+
+  /** Mask from a coordinate to a coordinate inside its chunk. */
+  private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+  /** Bit of a cell that marks it off limits; the rest is the type ordinal. */
+  private static final byte OFF_LIMITS = (byte) 0x80;
+
+  /** Tile types indexed by ordinal. */
+  private static final WorldTileType[] TILE_TYPES = WorldTileType.values();
+
+  /** Actual height of the Map. */
+  private final int mapHeight;
+
+  /** Actual width of the Map. */
+  private final int mapWidth;
+
+  /** Number of chunks across the Map. */
+  private final int chunksAcross;
+
+  /** Where evicted chunks go. */
+  private final ChunkStore store;
+
+  /** Loaded chunks, least recently used first. */
+  private final LinkedHashMap<Integer, Chunk> loaded;
+
+  /** The chunk touched last, checked before the map. */
+  private Chunk lastChunk;
+
+  /** One chunk of tiles. */
+  private static final class Chunk {
+    /** Id of this chunk. */
+    private final int id;
+
+    /** Type ordinal and off limits flag of each tile. */
+    private final byte[] cells = new byte[TILES_PER_CHUNK];
+
+    /** Territory id of each tile. */
+    private final int[] territoryIds = new int[TILES_PER_CHUNK];
+
+    /** Changed since it was loaded. */
+    private boolean dirty;
+
+    Chunk(final int id) {
+      this.id = id;
+    }
+  }
+
+  /**
+   * Construct a World with all tiles being water.
+   *
+   * @param width     Width of the Map
+   * @param height    Height of the Map
+   * @param store     where to keep chunks that are not in memory
+   * @param maxChunks most chunks to hold in memory at once
+   */
+  public ChunkedDoltWorld(final int width, final int height, final ChunkStore store, final int maxChunks) {
+    checkArgument(width > 0 && height > 0, "World dimensions must be positive.");
+    checkArgument(maxChunks > 0, "At least one chunk must fit in memory.");
+    this.mapWidth = width;
+    this.mapHeight = height;
+    this.chunksAcross = (width + CHUNK_MASK) >>> CHUNK_SHIFT;
+    final long chunks = (long) this.chunksAcross * ((height + CHUNK_MASK) >>> CHUNK_SHIFT);
+    checkArgument(chunks <= Integer.MAX_VALUE, "World has too many chunks to index.");
+    this.store = checkNotNull(store);
+    this.loaded = new LinkedHashMap<Integer, Chunk>(16, 0.75f, true) {
+      private static final long serialVersionUID = 1L;
+
+      @Override
+      protected boolean removeEldestEntry(final Map.Entry<Integer, Chunk> eldest) {
+        if (size() <= maxChunks) {
+          return false;
+        }
+        writeBack(eldest.getValue());
+        return true;
+      }
+    };
+  }
+
+  @Override
+  public int getWidth() {
+    return this.mapWidth;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.mapHeight;
+  }
+
+  /**
+   * Get the number of chunks in memory.
+   *
+   * @return the number of loaded chunks
+   */
+  public int getLoadedChunkCount() {
+    return this.loaded.size();
+  }
+
+  @Override
+  public WorldTileType getType(final int x, final int y) {
+    return TILE_TYPES[chunkAt(x, y).cells[offsetOf(x, y)] & ~OFF_LIMITS];
+  }
+
+  @Override
+  public void setType(final int x, final int y, final WorldTileType type) {
+    final Chunk chunk = chunkAt(x, y);
+    final int offset = offsetOf(x, y);
+    chunk.cells[offset] = (byte) (chunk.cells[offset] & OFF_LIMITS | type.ordinal());
+    chunk.dirty = true;
+  }
+
+  @Override
+  public int getTerritoryId(final int x, final int y) {
+    return chunkAt(x, y).territoryIds[offsetOf(x, y)];
+  }
+
+  @Override
+  public void setTerritoryId(final int x, final int y, final int territoryId) {
+    final Chunk chunk = chunkAt(x, y);
+    chunk.territoryIds[offsetOf(x, y)] = territoryId;
+    chunk.dirty = true;
+  }
+
+  @Override
+  public boolean isOffLimits(final int x, final int y) {
+    return (chunkAt(x, y).cells[offsetOf(x, y)] & OFF_LIMITS) != 0;
+  }
+
+  @Override
+  public void setOffLimits(final int x, final int y, final boolean flag) {
+    final Chunk chunk = chunkAt(x, y);
+    final int offset = offsetOf(x, y);
+    if (flag) {
+      chunk.cells[offset] |= OFF_LIMITS;
+    } else {
+      chunk.cells[offset] &= ~OFF_LIMITS;
+    }
+    chunk.dirty = true;
+  }
+
+  /**
+   * Write every changed chunk in memory to the store.
+   */
+  public void flush() {
+    for (Chunk chunk : this.loaded.values()) {
+      writeBack(chunk);
+    }
+  }
+
+  /**
+   * Write every changed chunk to the store and close it.
+   *
+   * @throws IOException if writing or closing fails
+   */
+  @Override
+  public void close() throws IOException {
+    try {
+      flush();
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    } finally {
+      this.store.close();
+    }
+  }
+
+  private Chunk chunkAt(final int x, final int y) {
+    checkArgument(isOnMap(x, y), "Tile %s,%s is off the map.", x, y);
+    final int id = (y >>> CHUNK_SHIFT) * this.chunksAcross + (x >>> CHUNK_SHIFT);
+    Chunk chunk = this.lastChunk;
+    if (chunk != null && chunk.id == id) {
+      return chunk;
+    }
+    chunk = this.loaded.get(id);
+    if (chunk == null) {
+      chunk = readChunk(id);
+      this.loaded.put(id, chunk);
+    }
+    this.lastChunk = chunk;
+    return chunk;
+  }
+
+  private Chunk readChunk(final int id) {
+    final Chunk chunk = new Chunk(id);
+    try {
+      if (!this.store.load(id, chunk.cells, chunk.territoryIds)) {
+        Arrays.fill(chunk.cells, (byte) WorldTileType.WATER.ordinal());
+        Arrays.fill(chunk.territoryIds, NO_TERRITORY);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not load chunk " + id + ".", e);
+    }
+    return chunk;
+  }
+
+  private void writeBack(final Chunk chunk) {
+    if (!chunk.dirty) {
+      return;
+    }
+    try {
+      this.store.store(chunk.id, chunk.cells, chunk.territoryIds);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Could not store chunk " + chunk.id + ".", e);
+    }
+    chunk.dirty = false;
+  }
+
+  private static int offsetOf(final int x, final int y) {
+    return (y & CHUNK_MASK) << CHUNK_SHIFT | x & CHUNK_MASK;
+  }
+}
@@ -0,0 +1,89 @@
+package com.spamalot.dolt.world.packed;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * A scratch file holding chunks at fixed offsets, {@code chunk * chunkBytes}.
+ * The file is sparse where no chunk was ever stored. It only lives as long as
+ * the World using it; it is not a save format.
+ *
+ * @author gej
+ *
+ */
+public final class FileChunkStore implements ChunkStore {
+  /** The file. */
+  private final FileChannel channel;
+
+  /** Tiles in a chunk. */
+  private final int tilesPerChunk;
+
+  /** Bytes a chunk takes in the file. */
+  private final int chunkBytes;
+
+  /** Chunks stored so far. */
+  private final BitSet stored = new BitSet();
+
+  /** Reused for reading and writing. */
+  private final ByteBuffer buffer;
+
+  /**
+   * Create or truncate a chunk file.
+   *
+   * @param file          the file
+   * @param tilesPerChunk tiles in a chunk
+   * @throws IOException if the file cannot be opened
+   */
+  public FileChunkStore(final Path file, final int tilesPerChunk) throws IOException {
+    checkArgument(tilesPerChunk > 0, "Chunks must hold at least one tile.");
+    this.tilesPerChunk = tilesPerChunk;
+    this.chunkBytes = tilesPerChunk * (1 + Integer.BYTES);
+    this.buffer = ByteBuffer.allocate(this.chunkBytes);
+    this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+  }
+
+  @Override
+  public synchronized boolean load(final int chunk, final byte[] cells, final int[] territoryIds)
+      throws IOException {
+    if (!this.stored.get(chunk)) {
+      return false;
+    }
+    this.buffer.clear();
+    final long offset = (long) chunk * this.chunkBytes;
+    while (this.buffer.hasRemaining()) {
+      if (this.channel.read(this.buffer, offset + this.buffer.position()) < 0) {
+        throw new IOException("Chunk file ended inside chunk " + chunk + ".");
+      }
+    }
+    this.buffer.flip();
+    this.buffer.get(cells, 0, this.tilesPerChunk);
+    this.buffer.asIntBuffer().get(territoryIds, 0, this.tilesPerChunk);
+    return true;
+  }
+
+  @Override
+  public synchronized void store(final int chunk, final byte[] cells, final int[] territoryIds)
+      throws IOException {
+    this.buffer.clear();
+    this.buffer.put(cells, 0, this.tilesPerChunk);
+    this.buffer.asIntBuffer().put(territoryIds, 0, this.tilesPerChunk);
+    this.buffer.clear();
+    final long offset = (long) chunk * this.chunkBytes;
+    while (this.buffer.hasRemaining()) {
+      this.channel.write(this.buffer, offset + this.buffer.position());
+    }
+    this.stored.set(chunk);
+  }
+
+  @Override
+  public void close() throws IOException {
+    this.channel.close();
+  }
+}
@@ -0,0 +1,222 @@
+package com.spamalot.dolt.world.packed;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.spamalot.dolt.world.WorldTileType;
+import com.spamalot.dolt.world.grid.Direction;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * A World stored as a struct of flat primitive arrays indexed by
+ * {@code y * width + x}. There are no tile objects and no neighbor links, so a
+ * very large World costs a few bytes per tile instead of an object and a
+ * neighbor map per tile.
+ *
+ * @author gej
+ *
+ */
+public final class FlatDoltWorld implements PackedWorld {
+  /** Tile types indexed by ordinal. */
+  private static final WorldTileType[] TILE_TYPES = WorldTileType.values();
+
+  /** Actual height of the Map. */
+  private final int mapHeight;
+
+  /** Actual width of the Map. */
+  private final int mapWidth;
+
+  /** Ordinal of the WorldTileType of each tile. */
+  private final byte[] tileTypes;
+
+  /** Territory id of each tile. */
+  private final int[] territoryIds;
+
+  /** Tiles that are off limits. */
+  private final BitSet offLimits;
+
+  /**
+   * Construct a World with all tiles being water.
+   *
+   * @param width  Width of the Map
+   * @param height Height of the Map
+   */
+  public FlatDoltWorld(final int width, final int height) {
+    checkArgument(width > 0 && height > 0, "World dimensions must be positive.");
+    checkArgument((long) width * height <= Integer.MAX_VALUE, "World is too large to index.");
+
+    this.mapWidth = width;
+    this.mapHeight = height;
+
+    final int size = width * height;
+    this.tileTypes = new byte[size];
+    Arrays.fill(this.tileTypes, (byte) WorldTileType.WATER.ordinal());
+    this.territoryIds = new int[size];
+    Arrays.fill(this.territoryIds, NO_TERRITORY);
+    this.offLimits = new BitSet(size);
+  }
+
+  @Override
+  public int getWidth() {
+    return this.mapWidth;
+  }
+
+  @Override
+  public int getHeight() {
+    return this.mapHeight;
+  }
+
+  /**
+   * Get the number of tiles in the World.
+   *
+   * @return width times height
+   */
+  public int size() {
+    return this.tileTypes.length;
+  }
+
+  /**
+   * Get the index of a coordinate.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   * @return the index of the tile
+   */
+  public int indexOf(final int x, final int y) {
+    return y * this.mapWidth + x;
+  }
+
+  /**
+   * Get the index of the tile in a Direction.
+   *
+   * @param index index of a tile
+   * @param dir   a Direction
+   * @return the index of the neighbor, or -1 if it is off the map
+   */
+  public int neighborIndex(final int index, final Direction dir) {
+    checkNotNull(dir);
+
+    final int x = index % this.mapWidth + dir.gethDiff();
+    final int y = index / this.mapWidth + dir.getvDiff();
+    int ret = -1;
+    if (isOnMap(x, y)) {
+      ret = indexOf(x, y);
+    }
+    return ret;
+  }
+
+  /**
+   * Get the type of a tile by index.
+   *
+   * @param index index of the tile
+   * @return the type of the tile
+   */
+  public WorldTileType getType(final int index) {
+    return TILE_TYPES[this.tileTypes[index]];
+  }
+
+  /**
+   * Set the type of a tile by index.
+   *
+   * @param index index of the tile
+   * @param type  the type to set
+   */
+  public void setType(final int index, final WorldTileType type) {
+    this.tileTypes[index] = (byte) type.ordinal();
+  }
+
+  /**
+   * Get the territory id of a tile by index.
+   *
+   * @param index index of the tile
+   * @return the territory id, or {@link #NO_TERRITORY}
+   */
+  public int getTerritoryId(final int index) {
+    return this.territoryIds[index];
+  }
+
+  /**
+   * Set the territory id of a tile by index.
+   *
+   * @param index       index of the tile
+   * @param territoryId the territory id
+   */
+  public void setTerritoryId(final int index, final int territoryId) {
+    this.territoryIds[index] = territoryId;
+  }
+
+  /**
+   * Check if a tile is off limits by index.
+   *
+   * @param index index of the tile
+   * @return true if off limits
+   */
+  public boolean isOffLimits(final int index) {
+    return this.offLimits.get(index);
+  }
+
+  /**
+   * Mark a tile as off limits or not by index.
+   *
+   * @param index index of the tile
+   * @param flag  whether the tile is off limits
+   */
+  public void setOffLimits(final int index, final boolean flag) {
+    this.offLimits.set(index, flag);
+  }
+
+  @Override
+  public WorldTileType getType(final int x, final int y) {
+    return getType(indexOf(x, y));
+  }
+
+  @Override
+  public void setType(final int x, final int y, final WorldTileType type) {
+    setType(indexOf(x, y), type);
+  }
+
+  @Override
+  public int getTerritoryId(final int x, final int y) {
+    return getTerritoryId(indexOf(x, y));
+  }
+
+  @Override
+  public void setTerritoryId(final int x, final int y, final int territoryId) {
+    setTerritoryId(indexOf(x, y), territoryId);
+  }
+
+  @Override
+  public boolean isOffLimits(final int x, final int y) {
+    return isOffLimits(indexOf(x, y));
+  }
+
+  @Override
+  public void setOffLimits(final int x, final int y, final boolean flag) {
+    setOffLimits(indexOf(x, y), flag);
+  }
+
+  @Override
+  public String toString() {
+
+    final StringBuilder sb = new StringBuilder();
+    sb.append('+');
+    for (int x = 0; x < this.mapWidth; x++) {
+      sb.append("-+");
+    }
+    sb.append('\n');
+    for (int y = 0; y < this.mapHeight; y++) {
+      sb.append('|');
+      for (int x = 0; x < this.mapWidth; x++) {
+        sb.append(getType(x, y));
+        sb.append('|');
+      }
+      sb.append("\n+");
+      for (int x = 0; x < this.mapWidth; x++) {
+        sb.append("-+");
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
@@ -0,0 +1,166 @@
+package com.spamalot.dolt.world.packed;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import com.spamalot.dolt.world.WorldTileType;
+import com.spamalot.dolt.world.grid.Direction;
+
+/**
+ * A view of one tile of a {@link PackedWorld}. It holds nothing but its
+ * coordinates; all state lives in the World. Neighbors are computed
+ * arithmetically instead of being linked, and a view can be moved from tile to
+ * tile so that walking the World does not allocate. Equality follows the
+ * coordinates, so do not move a view while it is in a hashed collection.
+ *
+ * @author gej
+ *
+ */
+public final class PackedTile {
+  /** The World this tile is a view of. */
+  private final PackedWorld world;
+
+  /** Horizontal coordinate. */
+  private int x;
+
+  /** Vertical coordinate. */
+  private int y;
+
+  /**
+   * Create a view of a tile.
+   *
+   * @param world The World
+   * @param x     Horizontal coordinate
+   * @param y     Vertical coordinate
+   */
+  PackedTile(final PackedWorld world, final int x, final int y) {
+    this.world = world;
+    this.x = x;
+    this.y = y;
+  }
+
+  /**
+   * Get the tile in a Direction.
+   *
+   * @param dir a Direction
+   * @return the tile in that Direction, or null if off the map
+   */
+  public PackedTile get(final Direction dir) {
+    checkNotNull(dir);
+
+    return this.world.getMapTile(this.x + dir.gethDiff(), this.y + dir.getvDiff());
+  }
+
+  /**
+   * Move this view to the tile in a Direction.
+   *
+   * @param dir a Direction
+   * @return true if it moved, false if that tile is off the map and the view
+   *         stayed where it was
+   */
+  public boolean move(final Direction dir) {
+    checkNotNull(dir);
+
+    final int nx = this.x + dir.gethDiff();
+    final int ny = this.y + dir.getvDiff();
+    final boolean ret = this.world.isOnMap(nx, ny);
+    if (ret) {
+      this.x = nx;
+      this.y = ny;
+    }
+    return ret;
+  }
+
+  /**
+   * Get the horizontal coordinate.
+   *
+   * @return the horizontal coordinate
+   */
+  public int getX() {
+    return this.x;
+  }
+
+  /**
+   * Get the vertical coordinate.
+   *
+   * @return the vertical coordinate
+   */
+  public int getY() {
+    return this.y;
+  }
+
+  /**
+   * Get this tile's Type.
+   *
+   * @return The WorldTileType
+   */
+  public WorldTileType getType() {
+    return this.world.getType(this.x, this.y);
+  }
+
+  /**
+   * Set this tile's type.
+   *
+   * @param type The type to set this Tile to
+   */
+  public void setType(final WorldTileType type) {
+    this.world.setType(this.x, this.y, type);
+  }
+
+  /**
+   * Get the id of the Territory this tile belongs to.
+   *
+   * @return the territory id, or {@link PackedWorld#NO_TERRITORY}
+   */
+  public int getTerritoryId() {
+    return this.world.getTerritoryId(this.x, this.y);
+  }
+
+  /**
+   * Set the id of the Territory this tile belongs to.
+   *
+   * @param territoryId the territory id
+   */
+  public void setTerritoryId(final int territoryId) {
+    this.world.setTerritoryId(this.x, this.y, territoryId);
+  }
+
+  /**
+   * Check if this tile is off limits.
+   *
+   * @return true if off limits
+   */
+  public boolean isOffLimits() {
+    return this.world.isOffLimits(this.x, this.y);
+  }
+
+  /**
+   * Mark this tile as off limits or not.
+   *
+   * @param flag whether this tile is off limits
+   */
+  public void setOffLimits(final boolean flag) {
+    this.world.setOffLimits(this.x, this.y, flag);
+  }
+
+  @Override
+  public boolean equals(final Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof PackedTile)) {
+      return false;
+    }
+    PackedTile other = (PackedTile) obj;
+    return this.world == other.world && this.x == other.x && this.y == other.y;
+  }
+
+  @Override
+  public int hashCode() {
+    return 31 * (31 * System.identityHashCode(this.world) + this.x) + this.y;
+  }
+
+  @Override
+  public String toString() {
+    return getType().toString();
+  }
+}
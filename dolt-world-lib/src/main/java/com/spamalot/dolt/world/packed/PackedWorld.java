@@ -0,0 +1,118 @@
+package com.spamalot.dolt.world.packed;
+
+import com.spamalot.dolt.world.WorldTileType;
+
+/**
+ * A World whose tiles are stored as primitives rather than as one object per
+ * tile. Tiles are addressed by coordinate and exposed through lightweight
+ * {@link PackedTile} views.
+ *
+ * <p>
+ * This is a storage model for holding and querying Worlds too large to keep as
+ * linked tiles. It is not a {@link com.spamalot.dolt.world.DoltWorld} backend:
+ * DoltWorld, DoltMap and territory generation walk linked
+ * {@link com.spamalot.dolt.world.WorldTile} objects and cannot run on a
+ * PackedWorld.
+ *
+ * @author gej
+ *
+ */
+public interface PackedWorld {
+  /** Territory id of a tile that belongs to no Territory. */
+  int NO_TERRITORY = -1;
+
+  /**
+   * Get the width of the World.
+   *
+   * @return the width
+   */
+  int getWidth();
+
+  /**
+   * Get the height of the World.
+   *
+   * @return the height
+   */
+  int getHeight();
+
+  /**
+   * Get the type of a tile.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   * @return the type of the tile
+   */
+  WorldTileType getType(int x, int y);
+
+  /**
+   * Set the type of a tile.
+   *
+   * @param x    Horizontal coordinate
+   * @param y    Vertical coordinate
+   * @param type the type to set
+   */
+  void setType(int x, int y, WorldTileType type);
+
+  /**
+   * Get the id of the Territory a tile belongs to.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   * @return the territory id, or {@link #NO_TERRITORY}
+   */
+  int getTerritoryId(int x, int y);
+
+  /**
+   * Set the id of the Territory a tile belongs to.
+   *
+   * @param x           Horizontal coordinate
+   * @param y           Vertical coordinate
+   * @param territoryId the territory id, or {@link #NO_TERRITORY}
+   */
+  void setTerritoryId(int x, int y, int territoryId);
+
+  /**
+   * Check if a tile is off limits.
+   *
+   * @param x Horizontal coordinate
+   * @param y Vertical coordinate
+   * @return true if the tile is off limits
+   */
+  boolean isOffLimits(int x, int y);
+
+  /**
+   * Mark a tile as off limits or not.
+   *
+   * @param x    Horizontal coordinate
+   * @param y    Vertical coordinate
+   * @param flag whether the tile is off limits
+   */
+  void setOffLimits(int x, int y, boolean flag);
+
+  /**
+   * Check if coordinate is on map.
+   *
+   * @param x The X ordinate
+   * @param y The Y ordinate
+   * @return true if this Coordinate is on the Map
+   */
+  default boolean isOnMap(final int x, final int y) {
+    return x >= 0 && x < getWidth() && y >= 0 && y < getHeight();
+  }
+
+  /**
+   * Get a view of the map tile. Each call creates a new view; to walk the World
+   * without allocating, move one view around with {@link PackedTile#move}.
+   *
+   * @param i Horizontal coordinate
+   * @param j Vertical coordinate
+   * @return The map tile at those coordinates, or null if off the map
+   */
+  default PackedTile getMapTile(final int i, final int j) {
+    PackedTile ret = null;
+    if (isOnMap(i, j)) {
+      ret = new PackedTile(this, i, j);
+    }
+    return ret;
+  }
+}
@@ -0,0 +1,127 @@
+package com.spamalot.dolt.world;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.spamalot.dolt.world.FloodFillTest.Tile;
+import com.spamalot.dolt.world.grid.Direction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Predicate;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class DoltWorldTest {
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.DoltWorld#DoltWorld(int, int, java.util.function.Supplier, TileLayout, boolean)}.
+   */
+  @Test
+  public void testEveryLayoutLinksEveryTile() {
+    for (TileLayout layout : TileLayout.values()) {
+      for (boolean parallel : new boolean[] { false, true }) {
+        DoltWorld<Tile> world = new DoltWorld<>(150, 130, Tile::new, layout, parallel);
+        for (int y = 0; y < 130; y++) {
+          for (int x = 0; x < 150; x++) {
+            Tile tile = world.getMapTile(x, y);
+            assertEquals(x, tile.getX());
+            assertEquals(y, tile.getY());
+            for (Direction dir : Direction.values()) {
+              assertSame(world.getMapTile(x + dir.gethDiff(), y + dir.getvDiff()), tile.get(dir));
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.world.DoltWorld#getMapTile(int)}.
+   */
+  @Test
+  public void testIndexAccessMatchesCoordinates() {
+    DoltWorld<Tile> world = new DoltWorld<>(7, 5, Tile::new);
+    List<Tile> visited = new ArrayList<>();
+    world.forEachTile(visited::add);
+    assertEquals(35, visited.size());
+    world.tileIndices().forEach(index -> {
+      Tile tile = world.getMapTile(index);
+      assertSame(visited.get(index), tile);
+      assertEquals(index, world.indexOf(tile.getX(), tile.getY()));
+      assertSame(tile, world.getMapTileUnchecked(tile.getX(), tile.getY()));
+    });
+    assertNull(world.getMapTile(7, 0));
+    assertFalse(world.isOnMap(0, -1));
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.world.DoltWorld#fillManhattan(int, int, int, int[])}.
+   */
+  @Test
+  public void testSpatialQueries() {
+    DoltWorld<Tile> world = new DoltWorld<>(10, 10, Tile::new);
+    int[] buffer = new int[100];
+
+    assertEquals(13, world.fillManhattan(5, 5, 2, buffer));
+    assertArrayEquals(world.manhattanIndices(5, 5, 2).toArray(), Arrays.copyOf(buffer, 13));
+    assertEquals(6, world.manhattanIndices(0, 0, 2).count());
+    assertEquals(9, world.fillChebyshev(9, 9, 2, buffer));
+    assertEquals(world.indexOf(7, 7), buffer[0]);
+    assertEquals(12, world.fillRectangle(-1, 8, 7, 5, new int[4]));
+    assertEquals(0, world.rectangleIndices(10, 0, 3, 3).count());
+    // Edges past the int range are clipped, not wrapped.
+    assertEquals(100, world.fillChebyshev(5, 5, Integer.MAX_VALUE, buffer));
+    assertArrayEquals(world.tileIndices().toArray(), world.chebyshevIndices(5, 5, Integer.MAX_VALUE).toArray());
+    assertEquals(100, world.fillManhattan(5, 5, Integer.MAX_VALUE, buffer));
+    assertEquals(0, world.chebyshevIndices(Integer.MIN_VALUE, 5, Integer.MAX_VALUE).count());
+    assertEquals(100, world.fillRectangle(-5, -5, Integer.MAX_VALUE, Integer.MAX_VALUE, buffer));
+
+    world.getMapTile(4, 0).setType(WorldTileType.LAND);
+    Predicate<Tile> isLand = t -> t.getType() == WorldTileType.LAND;
+    assertEquals(4, world.fillRay(0, 0, Direction.RIGHT, 100, isLand, buffer));
+    assertEquals(world.indexOf(4, 0), buffer[3]);
+    assertArrayEquals(new int[] { 8, 7 }, world.rayIndices(9, 0, Direction.LEFT, 2, isLand).toArray());
+    assertEquals(0, world.rayIndices(0, 0, Direction.UP, 5, isLand).count());
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.DoltWorld#addTileChangeListener(TileChangeListener)}.
+   */
+  @Test
+  public void testChangesAreBatched() {
+    DoltWorld<Tile> world = new DoltWorld<>(70, 40, Tile.class);
+    world.getMapTile(0, 0).setType(WorldTileType.LAND);
+    assertEquals(0, world.getDirtyCount());
+
+    List<TileChanges> batches = new ArrayList<>();
+    world.addTileChangeListener(batches::add);
+    world.getMapTile(65, 35).setType(WorldTileType.LAND);
+    world.getMapTile(1, 1).setType(WorldTileType.LAND);
+    world.getMapTile(1, 1).setType(WorldTileType.WATER);
+    assertTrue(world.isDirty(1, 1));
+    assertFalse(world.isDirty(0, 0));
+    assertEquals(2, world.getDirtyCount());
+
+    world.flushChanges();
+    world.flushChanges();
+    assertEquals(1, batches.size());
+    TileChanges changes = batches.get(0);
+    assertEquals(2, changes.getTileCount());
+    assertEquals(1, changes.getTileX(0));
+    assertEquals(35, changes.getTileY(1));
+    assertEquals(2, changes.getChunkCount());
+    assertEquals(64, changes.getChunkX(0));
+    assertEquals(32, changes.getChunkY(0));
+    assertEquals(0, world.getDirtyCount());
+  }
+}
@@ -0,0 +1,60 @@
+package com.spamalot.dolt.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.function.Predicate;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class FloodFillTest {
+  private static final Predicate<Tile> IS_WATER = t -> t.getType() == WorldTileType.WATER;
+
+  private DoltWorld<Tile> world;
+
+  /** A concrete tile to fill. */
+  public static final class Tile extends WorldTile<Tile> {
+  }
+
+  /**
+   * Build a 5x5 world with a wall of land down column 2.
+   */
+  @Before
+  public void setUp() {
+    world = new DoltWorld<>(5, 5, Tile.class);
+    for (int y = 0; y < 5; y++) {
+      world.getMapTile(2, y).setType(WorldTileType.LAND);
+    }
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.FloodFill#fill(WorldTile, int, java.util.function.Predicate)}.
+   */
+  @Test
+  public void testFillStopsAtWall() {
+    FloodFill<Tile> fill = new FloodFill<>(world);
+    assertEquals(10, fill.fill(world.getMapTile(0, 0), Integer.MAX_VALUE, IS_WATER));
+    assertTrue(fill.isVisited(world.getMapTile(1, 4)));
+    assertFalse(fill.isVisited(world.getMapTile(3, 0)));
+    assertEquals(0, fill.getVisitedIndex(0));
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.FloodFill#fill(WorldTile, int, java.util.function.Predicate)}.
+   */
+  @Test
+  public void testFillLimitAndReuse() {
+    FloodFill<Tile> fill = new FloodFill<>(world);
+    assertEquals(3, fill.fill(world.getMapTile(4, 4), 3, IS_WATER));
+    assertEquals(10, fill.fill(world.getMapTile(4, 4), 100, IS_WATER));
+    assertFalse(fill.isVisited(world.getMapTile(0, 0)));
+    assertEquals(10, fill.toIndexArray().length);
+  }
+}
@@ -0,0 +1,120 @@
+package com.spamalot.dolt.world;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.spamalot.dolt.world.FloodFillTest.Tile;
+import java.util.Random;
+import java.util.function.Predicate;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class WaterComponentsTest {
+  private static final Predicate<Tile> IS_WATER = t -> t.getType() == WorldTileType.WATER;
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.WaterComponents#countAvailable(WorldTile, int)}.
+   */
+  @Test
+  public void testSplitByWall() {
+    DoltWorld<Tile> world = new DoltWorld<>(5, 5, Tile.class);
+    WaterComponents<Tile> components = new WaterComponents<>(world, new FloodFill<>(world));
+    assertEquals(25, components.countAvailable(world.getMapTile(0, 0), 100));
+    assertTrue(components.isExact(world.getMapTile(0, 0)));
+
+    for (int y = 0; y < 5; y++) {
+      world.getMapTile(2, y).setType(WorldTileType.LAND);
+      components.tileBecameLand(world.getMapTile(2, y));
+    }
+    assertEquals(10, components.countAvailable(world.getMapTile(0, 0), 100));
+    assertTrue(components.isExact(world.getMapTile(1, 1)));
+    assertEquals(10, components.countAvailable(world.getMapTile(4, 4), 100));
+
+    world.getMapTile(2, 2).setType(WorldTileType.WATER);
+    components.tileBecameWater(world.getMapTile(2, 2));
+    assertEquals(21, components.countAvailable(world.getMapTile(0, 0), 100));
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.WaterComponents#tileBecameLand(WorldTile)}.
+   */
+  @Test
+  public void testLandThatCannotSplitKeepsBodyExact() {
+    DoltWorld<Tile> world = new DoltWorld<>(20, 20, Tile.class);
+    WaterComponents<Tile> components = new WaterComponents<>(world, new FloodFill<>(world));
+    int[][] islands = { { 5, 5 }, { 10, 10 }, { 0, 0 }, { 19, 7 }, { 6, 5 }, { 6, 6 } };
+    for (int[] island : islands) {
+      world.getMapTile(island[0], island[1]).setType(WorldTileType.LAND);
+      components.tileBecameLand(world.getMapTile(island[0], island[1]));
+    }
+    assertTrue(components.isExact(world.getMapTile(15, 15)));
+    assertEquals(394, components.countAvailable(world.getMapTile(15, 15), 1000));
+    assertFalse(components.wasLastCountFlooded());
+
+    // Pinching off the corner tile (1,0) splits it off as a body of its own.
+    world.getMapTile(2, 0).setType(WorldTileType.LAND);
+    components.tileBecameLand(world.getMapTile(2, 0));
+    world.getMapTile(1, 1).setType(WorldTileType.LAND);
+    components.tileBecameLand(world.getMapTile(1, 1));
+    assertTrue(components.isExact(world.getMapTile(15, 15)));
+    assertTrue(components.isExact(world.getMapTile(1, 0)));
+    assertEquals(1, components.countAvailable(world.getMapTile(1, 0), 1000));
+    assertEquals(391, components.countAvailable(world.getMapTile(15, 15), 1000));
+    assertFalse(components.wasLastCountFlooded());
+  }
+
+  /**
+   * Test that a wall splitting a body into two large halves leaves it dirty
+   * until a flood fill finds a whole half.
+   */
+  @Test
+  public void testLargeSplitMakesBodyDirty() {
+    DoltWorld<Tile> world = new DoltWorld<>(40, 20, Tile.class);
+    WaterComponents<Tile> components = new WaterComponents<>(world, new FloodFill<>(world));
+    for (int y = 0; y < 20; y++) {
+      world.getMapTile(20, y).setType(WorldTileType.LAND);
+      components.tileBecameLand(world.getMapTile(20, y));
+      assertEquals(y < 19, components.isExact(world.getMapTile(0, 0)));
+    }
+    assertEquals(400, components.countAvailable(world.getMapTile(0, 0), 1000));
+    assertTrue(components.wasLastCountFlooded());
+    assertTrue(components.isExact(world.getMapTile(5, 5)));
+    assertEquals(380, components.countAvailable(world.getMapTile(39, 19), 1000));
+    assertTrue(components.isExact(world.getMapTile(39, 19)));
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.WaterComponents#countAvailable(WorldTile, int)}.
+   */
+  @Test
+  public void testMatchesFloodFill() {
+    DoltWorld<Tile> world = new DoltWorld<>(30, 20, Tile.class);
+    FloodFill<Tile> check = new FloodFill<>(world);
+    WaterComponents<Tile> components = new WaterComponents<>(world, new FloodFill<>(world));
+    Random random = new Random(7);
+    for (int n = 0; n < 2000; n++) {
+      Tile tile = world.getMapTile(random.nextInt(30), random.nextInt(20));
+      if (random.nextInt(4) == 0) {
+        if (tile.getType() == WorldTileType.LAND) {
+          tile.setType(WorldTileType.WATER);
+          components.tileBecameWater(tile);
+        }
+      } else if (tile.getType() == WorldTileType.WATER) {
+        tile.setType(WorldTileType.LAND);
+        components.tileBecameLand(tile);
+      }
+      Tile probe = world.getMapTile(random.nextInt(30), random.nextInt(20));
+      if (probe.getType() == WorldTileType.WATER) {
+        int limit = 1 + random.nextInt(200);
+        assertEquals(check.fill(probe, limit, IS_WATER), components.countAvailable(probe, limit));
+      }
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package com.spamalot.dolt.world;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class WorldRendererTest {
+  private DoltWorld<Tile> world;
+
+  /** A concrete tile to render. */
+  public static final class Tile extends WorldTile<Tile> {
+  }
+
+  /**
+   * Build a 4x3 world with land at (1,1) and (2,1).
+   */
+  @Before
+  public void setUp() {
+    world = new DoltWorld<>(4, 3, Tile::new);
+    world.getMapTile(1, 1).setType(WorldTileType.LAND);
+    world.getMapTile(2, 1).setType(WorldTileType.LAND);
+  }
+
+  /**
+   * Test method for {@link com.spamalot.dolt.world.WorldRenderer#renderToString(DoltWorld)}.
+   */
+  @Test
+  public void testWholeWorld() {
+    assertEquals("+-+-+-+-+\n|.|.|.|.|\n+-+-+-+-+\n|.|#|#|.|\n+-+-+-+-+\n|.|.|.|.|\n+-+-+-+-+\n",
+        new WorldRenderer<Tile>().renderToString(world));
+    assertEquals(world.toString(), new WorldRenderer<Tile>().renderToString(world));
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.WorldRenderer#setViewport(int, int, int, int)}.
+   */
+  @Test
+  public void testViewportIsClipped() {
+    WorldRenderer<Tile> renderer = new WorldRenderer<>();
+    assertEquals("+-+-+\n|#|#|\n+-+-+\n|.|.|\n+-+-+\n", renderer.setViewport(1, 1, 2, 5).renderToString(world));
+    assertEquals("+-+\n|.|\n+-+\n", renderer.setViewport(-2, -2, 3, 3).renderToString(world));
+    assertEquals("+\n", renderer.setViewport(10, 0, 5, 5).renderToString(world));
+    assertEquals("+-+\n|.|\n+-+\n",
+        renderer.setViewport(3, 2, Integer.MAX_VALUE, Integer.MAX_VALUE).renderToString(world));
+  }
+
+  /**
+   * Test that the stream and channel sinks write the same UTF-8 text.
+   *
+   * @throws IOException if writing fails
+   */
+  @Test
+  public void testStreamAndChannelSinks() throws IOException {
+    WorldRenderer<Tile> renderer = new WorldRenderer<Tile>().setViewport(0, 1, 3, 2);
+    String expected = renderer.renderToString(world);
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    renderer.render(world, stream);
+    assertEquals(expected, new String(stream.toByteArray(), StandardCharsets.UTF_8));
+
+    ByteArrayOutputStream channelBytes = new ByteArrayOutputStream();
+    try (WritableByteChannel channel = Channels.newChannel(channelBytes)) {
+      renderer.render(world, channel);
+    }
+    assertEquals(expected, new String(channelBytes.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  /**
+   * Test method for
+   * {@link com.spamalot.dolt.world.WorldRenderer#setColorKey(java.util.function.ToIntFunction)}.
+   */
+  @Test
+  public void testColorKeys() {
+    WorldRenderer<Tile> renderer = new WorldRenderer<Tile>().setViewport(0, 1, 3, 1)
+        .setColorKey(tile -> tile.getType() == WorldTileType.LAND ? tile.getX() - 1 : -1);
+    // Keys 0 and 1 land 37 palette steps apart, starting from color 16.
+    assertEquals("+-+-+-+\n|.|\u001B[48;5;53m#\u001B[0m|\u001B[48;5;90m#\u001B[0m|\n+-+-+-+\n",
+        renderer.renderToString(world));
+
+    assertEquals("+-+-+-+\n|.|#|#|\n+-+-+-+\n", renderer.setColorKey(null).renderToString(world));
+  }
+}
@@ -0,0 +1,70 @@
+package com.spamalot.dolt.world.grid;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class QuadGridCellTest {
+  /** A concrete cell to link. */
+  private static final class Cell extends QuadGridCell<Cell> {
+  }
+
+  /** A cell that only links sideways. */
+  private static final class RowCell extends AbstractGridCell<RowCell> {
+    @Override
+    boolean isValidDirection(final Direction dir) {
+      return dir == Direction.LEFT || dir == Direction.RIGHT;
+    }
+  }
+
+  /**
+   * Test that links are stored and found by Direction ordinal.
+   */
+  @Test
+  public void testLinksByOrdinal() {
+    Cell cell = new Cell();
+    Cell below = new Cell();
+    Cell right = new Cell();
+    cell.linkCellInDirection(Direction.DOWN, below);
+    cell.linkCellInDirection(Direction.RIGHT, right);
+    cell.linkCellInDirection(Direction.UP, null);
+
+    assertSame(below, cell.get(Direction.DOWN));
+    assertSame(below, cell.getNeighborCell(Direction.DOWN.ordinal()));
+    assertSame(right, cell.getNeighborCell(Direction.RIGHT.ordinal()));
+    assertNull(cell.get(Direction.LEFT));
+    assertNull(cell.getNeighborCell(Direction.UP.ordinal()));
+    assertEquals((1 << Direction.DOWN.ordinal()) | (1 << Direction.RIGHT.ordinal()), cell.getNeighborMask());
+
+    Cell otherRight = new Cell();
+    cell.linkCellInDirection(Direction.RIGHT, otherRight);
+    assertSame(otherRight, cell.get(Direction.RIGHT));
+  }
+
+  /**
+   * Test that every Direction links on a QuadGridCell and that a cell's
+   * direction mask drops links it does not allow.
+   */
+  @Test
+  public void testDirectionMask() {
+    Cell cell = new Cell();
+    for (Direction dir : Direction.values()) {
+      cell.linkCellInDirection(dir, new Cell());
+    }
+    assertEquals((1 << Direction.values().length) - 1, cell.getNeighborMask());
+
+    RowCell row = new RowCell();
+    for (Direction dir : Direction.values()) {
+      row.linkCellInDirection(dir, new RowCell());
+    }
+    assertEquals((1 << Direction.LEFT.ordinal()) | (1 << Direction.RIGHT.ordinal()), row.getNeighborMask());
+    assertNull(row.get(Direction.UP));
+    assertNull(row.get(Direction.DOWN));
+  }
+}
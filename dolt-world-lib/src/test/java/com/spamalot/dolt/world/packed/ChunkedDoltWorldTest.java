@@ -0,0 +1,112 @@
+package com.spamalot.dolt.world.packed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.spamalot.dolt.world.WorldTileType;
+import com.spamalot.dolt.world.grid.Direction;
+import java.io.IOException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * @author gej
+ *
+ */
+public class ChunkedDoltWorldTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  /**
+   * Test that tiles survive their chunks being evicted and loaded again.
+   *
+   * @throws IOException if the chunk file fails
+   */
+  @Test
+  public void testEvictedChunksComeBack() throws IOException {
+    FileChunkStore store = new FileChunkStore(folder.newFile().toPath(), ChunkedDoltWorld.TILES_PER_CHUNK);
+    try (ChunkedDoltWorld world = new ChunkedDoltWorld(300, 200, store, 2)) {
+      for (int y = 0; y < 200; y += 7) {
+        for (int x = 0; x < 300; x += 5) {
+          world.setType(x, y, WorldTileType.LAND);
+          world.setTerritoryId(x, y, x * 1000 + y);
+          world.setOffLimits(x, y, (x + y) % 2 == 0);
+        }
+      }
+      assertEquals(2, world.getLoadedChunkCount());
+
+      for (int y = 0; y < 200; y++) {
+        for (int x = 0; x < 300; x++) {
+          boolean set = y % 7 == 0 && x % 5 == 0;
+          assertEquals(set ? WorldTileType.LAND : WorldTileType.WATER, world.getType(x, y));
+          assertEquals(set ? x * 1000 + y : PackedWorld.NO_TERRITORY, world.getTerritoryId(x, y));
+          assertEquals(set && (x + y) % 2 == 0, world.isOffLimits(x, y));
+        }
+      }
+
+      PackedTile edge = world.getMapTile(63, 70);
+      assertEquals(world.getMapTile(64, 70), edge.get(Direction.RIGHT));
+      assertEquals(WorldTileType.LAND, edge.get(Direction.RIGHT).get(Direction.RIGHT).getType());
+      assertFalse(edge.get(Direction.RIGHT).get(Direction.RIGHT).isOffLimits());
+      assertTrue(world.getMapTile(64, 69).get(Direction.LEFT).get(Direction.LEFT).get(Direction.LEFT)
+          .get(Direction.LEFT).get(Direction.DOWN).isOffLimits());
+      assertFalse(world.isOnMap(300, 0));
+    }
+  }
+
+  /**
+   * Test walking a World of 48 chunks through a cache of 3, so almost every
+   * step across a chunk border evicts one, and that changes made along the way
+   * are written back.
+   *
+   * @throws IOException if the chunk file fails
+   */
+  @Test
+  public void testWalkAcrossEvictions() throws IOException {
+    final int width = 8 * ChunkedDoltWorld.CHUNK_SIZE;
+    final int height = 6 * ChunkedDoltWorld.CHUNK_SIZE;
+    FileChunkStore store = new FileChunkStore(folder.newFile().toPath(), ChunkedDoltWorld.TILES_PER_CHUNK);
+    try (ChunkedDoltWorld world = new ChunkedDoltWorld(width, height, store, 3)) {
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          if ((x * 7 + y * 13) % 11 == 0) {
+            world.setType(x, y, WorldTileType.LAND);
+            world.setTerritoryId(x, y, x ^ y);
+          }
+        }
+      }
+
+      // Snake down and up the columns, which crosses a chunk border every 64
+      // steps, and mark the land seen as off limits.
+      PackedTile walker = world.getMapTile(0, 0);
+      int visited = 0;
+      for (int x = 0; x < width; x++) {
+        final Direction along = x % 2 == 0 ? Direction.DOWN : Direction.UP;
+        do {
+          visited++;
+          boolean land = (walker.getX() * 7 + walker.getY() * 13) % 11 == 0;
+          assertEquals(land ? WorldTileType.LAND : WorldTileType.WATER, walker.getType());
+          if (land) {
+            assertEquals(walker.getX() ^ walker.getY(), walker.getTerritoryId());
+            walker.setOffLimits(true);
+          }
+        } while (walker.move(along));
+        assertTrue(world.getLoadedChunkCount() <= 3);
+        if (!walker.move(Direction.RIGHT)) {
+          assertEquals(width - 1, x);
+        }
+      }
+      assertEquals(width * height, visited);
+
+      world.flush();
+      for (int y = 0; y < height; y++) {
+        for (int x = 0; x < width; x++) {
+          assertEquals((x * 7 + y * 13) % 11 == 0, world.isOffLimits(x, y));
+        }
+      }
+      assertEquals(3, world.getLoadedChunkCount());
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package com.spamalot.dolt.world.packed;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import com.spamalot.dolt.world.WorldTileType;
+import com.spamalot.dolt.world.grid.Direction;
+import org.junit.Test;
+
+/**
+ * @author gej
+ *
+ */
+public class FlatDoltWorldTest {
+
+  /**
+   * Test that indices and neighbor indices follow the coordinates and stop at
+   * the edges.
+   */
+  @Test
+  public void testIndexing() {
+    FlatDoltWorld world = new FlatDoltWorld(7, 4);
+    assertEquals(28, world.size());
+    assertEquals(0, world.indexOf(0, 0));
+    assertEquals(7 * 2 + 3, world.indexOf(3, 2));
+    assertEquals(27, world.indexOf(6, 3));
+
+    int middle = world.indexOf(3, 2);
+    assertEquals(world.indexOf(3, 3), world.neighborIndex(middle, Direction.DOWN));
+    assertEquals(world.indexOf(2, 2), world.neighborIndex(middle, Direction.LEFT));
+    assertEquals(world.indexOf(4, 2), world.neighborIndex(middle, Direction.RIGHT));
+    assertEquals(world.indexOf(3, 1), world.neighborIndex(middle, Direction.UP));
+
+    // The end of one row is not linked to the start of the next.
+    assertEquals(-1, world.neighborIndex(world.indexOf(6, 1), Direction.RIGHT));
+    assertEquals(-1, world.neighborIndex(world.indexOf(0, 2), Direction.LEFT));
+    assertEquals(-1, world.neighborIndex(world.indexOf(4, 0), Direction.UP));
+    assertEquals(-1, world.neighborIndex(world.indexOf(4, 3), Direction.DOWN));
+  }
+
+  /**
+   * Test that type, territory and off limits are stored per tile and agree
+   * between coordinate, index and view access.
+   */
+  @Test
+  public void testTileState() {
+    FlatDoltWorld world = new FlatDoltWorld(5, 5);
+    assertEquals(WorldTileType.WATER, world.getType(2, 2));
+    assertEquals(PackedWorld.NO_TERRITORY, world.getTerritoryId(2, 2));
+    assertFalse(world.isOffLimits(2, 2));
+
+    world.setType(2, 2, WorldTileType.LAND);
+    world.setTerritoryId(world.indexOf(2, 2), 9);
+    world.getMapTile(1, 2).setOffLimits(true);
+
+    assertEquals(WorldTileType.LAND, world.getType(world.indexOf(2, 2)));
+    assertEquals(9, world.getMapTile(2, 2).getTerritoryId());
+    assertTrue(world.isOffLimits(1, 2));
+    assertEquals(WorldTileType.WATER, world.getType(3, 2));
+    assertEquals(PackedWorld.NO_TERRITORY, world.getTerritoryId(1, 2));
+    assertFalse(world.isOffLimits(2, 2));
+
+    world.setOffLimits(1, 2, false);
+    assertFalse(world.getMapTile(1, 2).isOffLimits());
+  }
+
+  /**
+   * Test that views find and move to their neighbors.
+   */
+  @Test
+  public void testViews() {
+    FlatDoltWorld world = new FlatDoltWorld(3, 3);
+    world.setType(2, 1, WorldTileType.LAND);
+    assertNull(world.getMapTile(3, 0));
+
+    PackedTile tile = world.getMapTile(1, 1);
+    assertEquals(world.getMapTile(2, 1), tile.get(Direction.RIGHT));
+    assertEquals(WorldTileType.LAND, tile.get(Direction.RIGHT).getType());
+    assertNull(tile.get(Direction.UP).get(Direction.UP));
+
+    assertTrue(tile.move(Direction.RIGHT));
+    assertEquals(WorldTileType.LAND, tile.getType());
+    assertFalse(tile.move(Direction.RIGHT));
+    assertEquals(2, tile.getX());
+    assertEquals(1, tile.getY());
+    assertTrue(tile.move(Direction.DOWN));
+    assertEquals(world.getMapTile(2, 2), tile);
+  }
+}